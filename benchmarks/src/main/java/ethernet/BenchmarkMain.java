@@ -0,0 +1,20 @@
+package ethernet;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ Runs the benchmarks with the GC profiler always attached, so every result comes with its allocation rate.  Takes the
+ usual JMH command line options, e.g. a regular expression to pick the benchmarks to run:
+ 
+ % java -jar benchmarks/target/benchmarks.jar RunBenchmark -p nodes=64
+*/
+public class BenchmarkMain {
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    
+    new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,90 @@
+package ethernet;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ The carrier sense on the bus (the default collision model) done for every node that wants the medium, working out
+ when it goes quiet for a deferring node, detecting collisions once transmissions have started, and the propagation
+ delay lookup underneath them all
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarrierSenseBenchmark {
+  @Param({ "64", "1024" })
+  int nodes;
+  
+  /**
+   How many transmissions are on the bus, more than one of them collide
+  */
+  @Param({ "1", "4" })
+  int sending;
+  
+  private Simulator sim;
+  private Bus bus;
+  private Node[] sources;
+  private Node[] destinations;
+  private int next = 0;
+  
+  @Setup
+  public void setup() {
+    this.sim = SweepRunner.configure(this.nodes, 1.5, 0, 1, 0, 0, 0, "heap", "bus", 1);
+    this.sim.setup();
+    this.bus = new Bus(this.sim.nodes, new PropagationTable(this.sim.nodes, this.sim.MEDIUM_SPEED), this.sim.MEDIUM_SPEED);
+    
+    this.sources = new Node[1024];
+    this.destinations = new Node[1024];
+    
+    SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < this.sources.length; i++) {
+      this.sources[i] = this.sim.nodes.get(random.nextInt(this.nodes));
+      this.destinations[i] = this.sim.nodes.get(random.nextInt(this.nodes));
+    }
+    
+    /**
+     Put full sized frames on the bus a tick apart so the carrier sense has something to look at
+    */
+    for (int i = 0; i < this.sending; i++) {
+      Node sender = this.sim.nodes.get(i);
+      Event frame = new Event(sender, sender.getDestinationNode(), 1500, 0, i);
+      
+      this.bus.transmit(frame, i, sender.ticksToSend(frame.getPayloadSize()));
+    }
+  }
+  
+  @Benchmark
+  public boolean senses() {
+    int i = (this.next++) & (this.sources.length - 1);
+    
+    return this.bus.senses(this.sources[i], 1000 + i);
+  }
+  
+  @Benchmark
+  public long idleAt() {
+    int i = (this.next++) & (this.sources.length - 1);
+    
+    return this.bus.idleAt(this.sources[i], 1000 + i);
+  }
+  
+  /**
+   The transmissions' detection times only ever move earlier, so working them out again finds the same ones every time
+  */
+  @Benchmark
+  public Bus detectCollisions() {
+    this.bus.detectCollisions(this.sending);
+    
+    return this.bus;
+  }
+  
+  @Benchmark
+  public int distanceBetweenNodes() {
+    int i = (this.next++) & (this.sources.length - 1);
+    
+    return this.sim.distanceBetweenNodes(this.sources[i], this.destinations[i]);
+  }
+}
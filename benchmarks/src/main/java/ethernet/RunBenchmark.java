@@ -0,0 +1,40 @@
+package ethernet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ A whole simulation, setup() and run(), across node counts and offered loads
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RunBenchmark {
+  @Param({ "8", "64", "256" })
+  int nodes;
+  
+  /**
+   Offered load per node in Mbps
+  */
+  @Param({ "0.15", "1.5" })
+  double load;
+  
+  @Param({ "200" })
+  int packets;
+  
+  @Param({ "heap" })
+  String scheduler;
+  
+  @Benchmark
+  public long run() {
+    Simulator sim = SweepRunner.configure(this.nodes, this.load, 0, this.packets, 0, 0, 0, this.scheduler, "bus", 1);
+    
+    sim.setup();
+    sim.run();
+    
+    return sim.getFramesDelivered();
+  }
+}
@@ -0,0 +1,33 @@
+package ethernet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ How long Simulator.setup() takes to build the nodes, pick their destinations and queue their first frames
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SetupBenchmark {
+  @Param({ "8", "64", "1024" })
+  int nodes;
+  
+  @Param({ "1280" })
+  int packets;
+  
+  @Param({ "heap", "wheel" })
+  String scheduler;
+  
+  @Benchmark
+  public Simulator setup() {
+    Simulator sim = SweepRunner.configure(this.nodes, 1.5, 0, this.packets, 0, 0, 0, this.scheduler, "bus", 1);
+    
+    sim.setup();
+    
+    return sim;
+  }
+}
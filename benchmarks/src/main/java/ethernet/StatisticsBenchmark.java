@@ -0,0 +1,57 @@
+package ethernet;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ The statistics phase: accumulating the given number of delivered frames as they leave the wire, then printing the
+ end of run report from the totals
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatisticsBenchmark {
+  @Param({ "100000", "1000000", "10000000" })
+  int events;
+  
+  @Param({ "64" })
+  int nodes;
+  
+  private List<Node> network = new ArrayList<Node>();
+  private PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+  
+  @Setup
+  public void setup() {
+    SimulationRandom random = new SimulationRandom(1);
+    
+    for (int i = 0; i < this.nodes; i++) {
+      this.network.add(new Node(i, random));
+    }
+    
+    for (Node node : this.network) {
+      node.setDestinationNode(this.network.get((node.getId() + 1) % this.nodes));
+      node.setFirstFrameSent(1);
+      node.setLastFrameSent(1 + this.events);
+    }
+  }
+  
+  @Benchmark
+  public StatisticsAccumulator statistics() {
+    StatisticsAccumulator accumulator = new StatisticsAccumulator(this.nodes);
+    
+    for (int i = 0; i < this.events; i++) {
+      Node source = this.network.get(i % this.nodes);
+      
+      accumulator.recordDelivery(source, source.getDestinationNode(), 512, 4600 + (i & 1023), i & 3);
+    }
+    
+    StatisticsReport.print(this.discard, this.network, accumulator, 10000000);
+    
+    return accumulator;
+  }
+}
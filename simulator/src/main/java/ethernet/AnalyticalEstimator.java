@@ -0,0 +1,472 @@
+package ethernet;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ Estimates the throughput and delay of a network without simulating it, from a mean field model of the bus (the
+ default collision model) in the spirit of Bianchi's fixed point.  A single network is printed in the same format as the
+ simulator's statistics, a grid of them as one CSV row each, so thousands of points can be screened in well under a
+ second before spending simulation time on the interesting ones.
+ 
+ Every attempt to send a frame is assumed to collide with the same probability p, whatever the frame has been through,
+ so each frame gets 1 + p + ... + p^16 attempts, since the simulator drops a frame on its 17th collision.  An attempt
+ that finds the medium busy (the fraction b of the time it's carrying frames and jams) waits for it to go quiet and
+ collides if anyone else has been waiting too, one that finds it idle collides if anyone else starts within the round
+ trip.  That gives p back, and the fixed point gives p and b.  Each node sends its frames one after the other from its
+ transmit queue, so it can't start frames any faster than it gets them through, and when it can't keep up the network
+ is saturated: the queues grow, and the frames go out later and later.
+ 
+ The delay of a frame adds up its transmission, the waits for the medium, and for each collision the jam and the
+ backoff the simulator gives it: up to 2^retries - 1 slots for the first 10 retries, then up to 10.
+ 
+ --calibrate runs full simulations of every point as well, and prints the estimates against them with the relative
+ errors, to see how far the estimates can be trusted.
+ 
+ % java AnalyticalEstimator --nodes=8,16,32,64 --load=0.1,0.5,1.5,3 --packet-size=64,512,1500
+*/
+public class AnalyticalEstimator {
+  /**
+   The frame is given up on after this many attempts
+  */
+  static final int MAX_ATTEMPTS = 17;
+  /**
+   How finely to look for the fixed point before narrowing it down
+  */
+  static final int SCAN_STEPS = 100;
+  static final double TOLERANCE = 1e-9;
+  /**
+   The traffic sources start at a random tick up to this
+  */
+  static final int START_SPREAD = 2 << 12;
+  
+  private int[] nodes = { 8 };
+  private double[] loads = { 1.5 };
+  private int[] packet_sizes = { 512 };
+  private int packets_each = 1280;
+  private int medium_speed = Simulator.DEFAULT_MEDIUM_SPEED;
+  /**
+   The slot time and backoff delay, 0 to go by the speed of the medium as the simulator does
+  */
+  private int slot_time = 0, retry_delay = 0;
+  private boolean calibrate = false;
+  private int replications = 3;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private long seed = new SplittableRandom().nextLong();
+  
+  /**
+   What the model works out for one network
+  */
+  static class Estimate {
+    int nodes;
+    double load;
+    int packet_size;
+    /**
+     The probability an attempt collides, and that a frame is dropped
+    */
+    double collision_probability, drop_probability;
+    /**
+     The fraction of the time the medium is busy
+    */
+    double utilization;
+    boolean saturated;
+    /**
+     Frames each node gets delivered, and the throughput in Mbps and the average delay in seconds of each node
+    */
+    long frames;
+    double throughput, delay;
+  }
+  
+  public static void main(String[] args) {
+    AnalyticalEstimator estimator = new AnalyticalEstimator();
+    
+    try {
+      for (String arg : args) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        
+        if (arg.startsWith("--nodes=")) {
+          estimator.nodes = SweepRunner.parseInts(value);
+        } else if (arg.startsWith("--load=")) {
+          estimator.loads = SweepRunner.parseDoubles(value);
+        } else if (arg.startsWith("--packet-size=")) {
+          estimator.packet_sizes = SweepRunner.parseInts(value);
+        } else if (arg.startsWith("--packets=")) {
+          estimator.packets_each = Integer.parseInt(value);
+        } else if (arg.startsWith("--medium-speed=")) {
+          estimator.medium_speed = (int)(Double.parseDouble(value) * 1000000);
+        } else if (arg.startsWith("--slot-time=")) {
+          estimator.slot_time = Integer.parseInt(value);
+        } else if (arg.startsWith("--retry-delay=")) {
+          estimator.retry_delay = Integer.parseInt(value);
+        } else if (arg.equals("--calibrate")) {
+          estimator.calibrate = true;
+        } else if (arg.startsWith("--replications=")) {
+          estimator.replications = Integer.parseInt(value);
+        } else if (arg.startsWith("--threads=")) {
+          estimator.threads = Integer.parseInt(value);
+        } else if (arg.startsWith("--seed=")) {
+          estimator.seed = Long.parseLong(value);
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      
+      if (estimator.calibrate) {
+        estimator.calibrate();
+      } else if (estimator.nodes.length * estimator.loads.length * estimator.packet_sizes.length == 1) {
+        estimator.statistics(estimator.estimate(estimator.nodes[0], estimator.loads[0], estimator.packet_sizes[0]));
+      } else {
+        estimator.grid();
+      }
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+  }
+  
+  /**
+   Work out the throughput and delay of a network
+   
+   @param node_count How many nodes there are
+   @param load The speed each node attempts to send at, in Mbps
+   @param packet_size The size of the payload in the frames, in bytes
+  */
+  Estimate estimate(int node_count, double load, int packet_size) {
+    Network network = new Network(node_count, load, packet_size, this.medium_speed, Simulator.carrierExtension(this.medium_speed, this.slot_time), Simulator.retryDelay(this.medium_speed, this.slot_time, this.retry_delay));
+    
+    /**
+     The collision probability given back is 0 or more at p = 0 and at most 1 at p = 1, so there's a fixed point in
+     between.  There can be more than one, a network that starts out empty settles on the lowest, so look for the first
+     place the probability given back drops below the one put in and narrow it down from there
+    */
+    double low = 0.0, high = 1.0;
+    
+    for (int i = 1; i <= SCAN_STEPS; i++) {
+      double p = (double)i / SCAN_STEPS;
+      
+      if (network.collisionProbability(p) <= p) {
+        low = p - 1.0 / SCAN_STEPS;
+        high = p;
+        break;
+      }
+    }
+    
+    while (high - low > TOLERANCE) {
+      double p = (low + high) / 2;
+      
+      if (network.collisionProbability(p) > p) {
+        low = p;
+      } else {
+        high = p;
+      }
+    }
+    
+    double p = (node_count > 1 ? high : 0.0);
+    double busy = network.busy(p);
+    double service = network.service(p, busy);
+    
+    Estimate estimate = new Estimate();
+    estimate.nodes = node_count;
+    estimate.load = load;
+    estimate.packet_size = packet_size;
+    estimate.collision_probability = p;
+    estimate.drop_probability = Math.pow(p, MAX_ATTEMPTS);
+    estimate.utilization = busy;
+    estimate.saturated = (network.lambda * service >= 1);
+    
+    double delay = network.delay(p, busy);
+    double delivered = this.packets_each * (1 - estimate.drop_probability);
+    double elapsed = this.packets_each / network.lambda;
+    
+    if (estimate.saturated) {
+      /**
+       Each node gets its frames through slower than they're due, so the run takes as long as the node takes to get
+       them all through and every frame waits in the queue longer than the one before it
+      */
+      delay += (this.packets_each - 1) / 2.0 * (service - 1 / network.lambda);
+      elapsed = this.packets_each * service;
+    } else {
+      /**
+       The traffic sources all start within START_SPREAD ticks of each other and send at the same rate, so every round
+       of frames turns up together and if they take longer to carry than that, each waits for the ones ahead of it
+      */
+      double carried = attempts(p) * network.occupancy(p);
+      
+      delay += Math.max(0, (node_count - 1) / 2.0 * (carried - (double)START_SPREAD / node_count));
+    }
+    
+    estimate.frames = Math.round(delivered);
+    estimate.throughput = delivered * packet_size * 8 / (elapsed / this.medium_speed) / 1000000;
+    estimate.delay = delay / this.medium_speed;
+    
+    return estimate;
+  }
+  
+  /**
+   The times (in ticks, one bit each) and rates that go into the model of one network
+  */
+  private static class Network {
+    int node_count;
+    /**
+     Frames per tick each node makes, the same gap between frames the simulator configures
+    */
+    double lambda;
+    double frame;
+    /**
+     The nodes are spread evenly over 500 meters, so on average they're a third of that apart
+    */
+    double propagation;
+    /**
+     How long a success and a collision keep the medium busy
+    */
+    double success_time, collision_time;
+    /**
+     The simulator's backoff slot
+    */
+    int retry_delay;
+    
+    Network(int node_count, double load, int packet_size, int medium_speed, long carrier_extension, int retry_delay) {
+      this.node_count = node_count;
+      this.lambda = load * 1000000 / (packet_size * 8) / medium_speed;
+      /**
+       Frames carry 64 bytes on top of their payload like the traffic sources send, and short ones are extended on
+       half duplex gigabit
+      */
+      this.frame = Math.max(carrier_extension, Frame.timeToTransmit(64 + packet_size));
+      this.propagation = (double)medium_speed / PropagationTable.SPEED_OF_LIGHT_IN_COPPER * 500 / 3;
+      this.success_time = this.frame + this.propagation + 1 + Bus.INTERFRAME_GAP;
+      this.collision_time = 2 * (this.propagation + 1) + Bus.JAM_BITS + Bus.INTERFRAME_GAP;
+      this.retry_delay = retry_delay;
+    }
+    
+    /**
+     @return How long the medium is busy for each attempt, two attempts share it for each collision
+    */
+    double occupancy(double p) {
+      return (1 - p) * this.success_time + p * this.collision_time / 2;
+    }
+    
+    /**
+     @return The attempts per tick every node makes together.  A node works through its queue a frame at a time, so it
+             can't start frames any faster than it gets them through
+    */
+    double rate(double p, double busy) {
+      return this.node_count * Math.min(this.lambda, 1 / this.service(p, busy)) * attempts(p);
+    }
+    
+    /**
+     @return The fraction of the time the medium is busy.  The busier it is the longer the nodes wait to get on it and
+             the fewer attempts they make, so it settles where the attempts keep it exactly that busy
+    */
+    double busy(double p) {
+      double low = 0.0, high = 1.0;
+      
+      while (high - low > TOLERANCE) {
+        double busy = (low + high) / 2;
+        
+        if (this.rate(p, busy) * this.occupancy(p) > busy) {
+          low = busy;
+        } else {
+          high = busy;
+        }
+      }
+      
+      return low;
+    }
+    
+    /**
+     @return How long after a node starts on a frame it can start on the next one: once every attempt, wait and
+             backoff is over and the last bit has been sent, and the interframe gap has passed
+    */
+    double service(double p, double busy) {
+      double own = this.delay(p, busy) - this.propagation + Bus.INTERFRAME_GAP;
+      
+      /**
+       The medium only fits so many attempts, and every node gets its share of them
+      */
+      return Math.max(own, this.node_count * attempts(p) * this.occupancy(p));
+    }
+    
+    /**
+     @return How long an attempt waits for the medium to go quiet, the rest of whatever it found going on.  Everyone
+             waiting goes as soon as it's quiet, so they don't queue up behind each other
+    */
+    double wait(double p, double busy) {
+      return busy * this.period(p) / 2;
+    }
+    
+    /**
+     @return How long the success or collision going on at a random moment the medium is busy lasts altogether, the
+             longer ones are more likely to be the one going on
+    */
+    double period(double p) {
+      return ((1 - p) * this.success_time * this.success_time + p * this.collision_time * this.collision_time) / ((1 - p) * this.success_time + p * this.collision_time);
+    }
+    
+    /**
+     @return The probability an attempt collides, if every attempt collides with probability p
+    */
+    double collisionProbability(double p) {
+      double busy = this.busy(p);
+      double rate = this.rate(p, busy);
+      
+      /**
+       An attempt that finds the medium busy has arrived during a success or a collision, more likely the longer one, and
+       everyone else who turns up before it's over goes at the same time.  One that finds it idle only collides with
+       someone starting within the round trip.  With a single node there's nobody to collide with
+      */
+      double period = this.period(p);
+      double others = rate * (this.node_count - 1) / this.node_count;
+      
+      return busy * (1 - Math.exp(-others * period)) + (1 - busy) * (1 - Math.exp(-others * 2 * (this.propagation + 1)));
+    }
+    
+    /**
+     Each attempt waits for the medium, then either gets the frame through or collides, jams and backs off for up to
+     2^retries - 1 slots for the first 10 retries and up to 10 after that
+     
+     @return The delay of a delivered frame, from being made to arriving, if the node kept up with making them
+    */
+    double delay(double p, double busy) {
+      double waits = this.wait(p, busy);
+      double delay = 0.0, collided = 0.0, reached = 1.0;
+      
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+        double backoff = (attempt + 1 < MAX_ATTEMPTS ? (attempt < 10 ? ((2 << attempt) - 1) / 2.0 : 5.0) * this.retry_delay : 0.0);
+        
+        delay += reached * (1 - p) * (collided + (attempt + 1) * waits);
+        collided += this.propagation + 1 + Bus.JAM_BITS + backoff;
+        reached *= p;
+      }
+      
+      double delivered = 1 - reached;
+      
+      return this.frame + this.propagation + (delivered > 0 ? delay / delivered : collided);
+    }
+  }
+  
+  /**
+   @return The average number of attempts a frame gets when each collides with the given probability
+  */
+  private static double attempts(double p) {
+    double attempts = 0.0, reached = 1.0;
+    
+    for (int i = 0; i < MAX_ATTEMPTS; i++) {
+      attempts += reached;
+      reached *= p;
+    }
+    
+    return attempts;
+  }
+  
+  /**
+   Print the estimate of a single network in the same format as the simulator's statistics, every node gets the same
+   estimate and is shown sending to the next
+  */
+  void statistics(Estimate estimate) {
+    List<Node> nodes = new ArrayList<Node>();
+    
+    for (int i = 0; i < estimate.nodes; i++) {
+      nodes.add(new Node(i, i + 1, 0));
+    }
+    
+    System.out.println("Estimated " + estimate.nodes + " nodes sending " + estimate.packet_size + " byte payloads at " + estimate.load + "Mbps each: collision probability " + estimate.collision_probability + ", drop probability " + estimate.drop_probability + ", medium busy " + (Math.floor(estimate.utilization * 10000) / 100) + "% of the time" + (estimate.saturated ? " (saturated)" : ""));
+    
+    for (Node node : nodes) {
+      System.out.println(StatisticsReport.speedLine(node, nodes.get((node.getId() + 1) % nodes.size()), estimate.throughput, estimate.delay, estimate.frames));
+    }
+    
+    for (Node node : nodes) {
+      System.out.println(StatisticsReport.csvLine(node, nodes.get((node.getId() + 1) % nodes.size()), estimate.throughput, estimate.delay));
+    }
+  }
+  
+  /**
+   Print a CSV row for every combination of attributes
+  */
+  void grid() {
+    long started = System.nanoTime();
+    int points = 0;
+    
+    System.out.println("nodes,load_mbps,packet_size,throughput_mbps,average_delay_s,collision_probability,drop_probability,utilization,saturated");
+    
+    for (int node_count : this.nodes) {
+      for (double load : this.loads) {
+        for (int packet_size : this.packet_sizes) {
+          Estimate estimate = this.estimate(node_count, load, packet_size);
+          
+          System.out.println(node_count + "," + load + "," + packet_size + "," + (estimate.throughput * node_count) + "," + estimate.delay + "," + estimate.collision_probability + "," + estimate.drop_probability + "," + estimate.utilization + "," + estimate.saturated);
+          points++;
+        }
+      }
+    }
+    
+    System.err.println("Estimated " + points + " points in " + ((System.nanoTime() - started) / 1000) + " microseconds");
+  }
+  
+  /**
+   Simulate every combination of attributes as well as estimating it, and print the two side by side with the relative
+   error of the network throughput and the average delay
+  */
+  void calibrate() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(this.threads);
+    SplittableRandom seeds = new SplittableRandom(this.seed);
+    List<Estimate> estimates = new ArrayList<Estimate>();
+    List<List<ForkJoinTask<double[]>>> runs = new ArrayList<List<ForkJoinTask<double[]>>>();
+    
+    try {
+      for (int node_count : this.nodes) {
+        for (double load : this.loads) {
+          for (int packet_size : this.packet_sizes) {
+            List<ForkJoinTask<double[]>> replicated = new ArrayList<ForkJoinTask<double[]>>();
+            
+            for (int i = 0; i < this.replications; i++) {
+              final int count = node_count, size = packet_size;
+              final double offered = load;
+              final long run_seed = seeds.split().nextLong();
+              
+              replicated.add(pool.submit(new Callable<double[]>() {
+                public double[] call() {
+                  return SweepRunner.simulate(count, offered, size, packets_each, medium_speed, slot_time, retry_delay, "heap", "bus", run_seed);
+                }
+              }));
+            }
+            
+            estimates.add(this.estimate(node_count, load, packet_size));
+            runs.add(replicated);
+          }
+        }
+      }
+      
+      System.out.println("Calibrating " + estimates.size() + " points against " + this.replications + " simulations each, seed " + this.seed);
+      System.out.println("nodes,load_mbps,packet_size,estimated_throughput_mbps,simulated_throughput_mbps,throughput_error,estimated_delay_s,simulated_delay_s,delay_error,saturated");
+      
+      double throughput_errors = 0.0, delay_errors = 0.0;
+      
+      for (int c = 0; c < estimates.size(); c++) {
+        Estimate estimate = estimates.get(c);
+        double[] throughput = new double[this.replications], delay = new double[this.replications];
+        
+        for (int i = 0; i < this.replications; i++) {
+          double[] result = runs.get(c).get(i).get();
+          
+          throughput[i] = result[0];
+          delay[i] = result[1];
+        }
+        
+        double simulated_throughput = SweepRunner.mean(throughput), simulated_delay = SweepRunner.mean(delay);
+        double throughput_error = (estimate.throughput * estimate.nodes - simulated_throughput) / simulated_throughput;
+        double delay_error = (estimate.delay - simulated_delay) / simulated_delay;
+        
+        throughput_errors += Math.abs(throughput_error);
+        delay_errors += Math.abs(delay_error);
+        
+        System.out.println(estimate.nodes + "," + estimate.load + "," + estimate.packet_size + "," + (estimate.throughput * estimate.nodes) + "," + simulated_throughput + "," + throughput_error + "," + estimate.delay + "," + simulated_delay + "," + delay_error + "," + estimate.saturated);
+      }
+      
+      System.out.println("Mean absolute relative error: throughput " + (throughput_errors / estimates.size()) + ", delay " + (delay_errors / estimates.size()));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package ethernet;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ A network of Ethernet segments joined by a store-and-forward bridge.  Each segment is its own Simulator with a bridge
+ port on its wire: frames for a node on another segment are sent to the local bridge port, and once one has been
+ received there it's queued at the destination segment's bridge port the forwarding latency later.
+ 
+ The segments are simulated in parallel, a window of ticks at a time.  Nothing sent during a window can reach another
+ segment until the forwarding latency has passed, so as long as the windows are no longer than that every segment can
+ run through one on its own thread, and the frames that reached a bridge port are carried across at the barrier
+ between windows.  Windows with nothing going on anywhere are skipped.
+ 
+ % java BridgedNetwork --segments=8 --nodes=125 --packets=1280 --load=0.1 --bridge-latency=1024 --threads=8
+*/
+public class BridgedNetwork {
+  private int segment_count = 4;
+  private int nodes = 8;
+  private int packets_each = 1280;
+  private long duration = 0;
+  private double load = 1.5;
+  private int packet_size = 512;
+  /**
+   The speed of every segment's medium in bits per second
+  */
+  private int medium_speed = 10000000;
+  /**
+   How many ticks (bits) after a frame has been received by one bridge port it can be sent from another, this is also
+   the length of the windows the segments are simulated in
+  */
+  private int bridge_latency = 1024;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private String scheduler = "heap";
+  private String collisions = "bus";
+  private SimulationLog.Level log_level = SimulationLog.Level.OFF;
+  private boolean jmx = false;
+  /**
+   Every segment's seed is split off of this, so the whole network can be replayed
+  */
+  private long seed = new SplittableRandom().nextLong();
+  
+  private Simulator[] segments;
+  /**
+   Every station on every segment, in order of id
+  */
+  private List<Node> stations = new ArrayList<Node>();
+  /**
+   The end of the window the segments are simulating (or have just simulated) up to
+  */
+  private long window_end = 0;
+  private int windows = 0;
+  private long bridged_frames = 0;
+  
+  public static void main(String[] args) {
+    BridgedNetwork network = new BridgedNetwork();
+    
+    try {
+      for (String arg : args) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        
+        if (arg.startsWith("--segments=")) {
+          network.segment_count = Integer.parseInt(value);
+        } else if (arg.startsWith("--nodes=")) {
+          network.nodes = Integer.parseInt(value);
+        } else if (arg.startsWith("--packets=")) {
+          network.packets_each = Integer.parseInt(value);
+        } else if (arg.startsWith("--duration=")) {
+          network.duration = Long.parseLong(value);
+        } else if (arg.startsWith("--load=")) {
+          network.load = Double.parseDouble(value);
+        } else if (arg.startsWith("--packet-size=")) {
+          network.packet_size = Integer.parseInt(value);
+        } else if (arg.startsWith("--medium-speed=")) {
+          network.medium_speed = (int)(Double.parseDouble(value) * 1000000);
+        } else if (arg.startsWith("--bridge-latency=")) {
+          network.bridge_latency = Integer.parseInt(value);
+        } else if (arg.startsWith("--threads=")) {
+          network.threads = Integer.parseInt(value);
+        } else if (arg.startsWith("--scheduler=")) {
+          network.scheduler = value;
+        } else if (arg.startsWith("--collisions=")) {
+          network.collisions = value;
+        } else if (arg.startsWith("--log-level=")) {
+          network.log_level = SimulationLog.parseLevel(value);
+        } else if (arg.startsWith("--seed=")) {
+          network.seed = Long.parseLong(value);
+        } else if (arg.equals("--jmx")) {
+          network.jmx = true;
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      
+      network.setup();
+      network.run();
+      network.statistics();
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+  }
+  
+  /**
+   Build every segment, then have each station pick a destination anywhere in the network
+  */
+  void setup() {
+    if (this.bridge_latency < 1) {
+      throw new IllegalArgumentException("The bridge latency has to be at least one tick");
+    }
+    
+    if (this.scheduler.equals("offheap")) {
+      throw new IllegalArgumentException("The offheap scheduler can't hold frames that have crossed the bridge");
+    }
+    
+    System.out.println("Using random seed " + this.seed + " (run again with --seed=" + this.seed + " to replay this simulation)");
+    
+    SplittableRandom seeds = new SplittableRandom(this.seed);
+    this.segments = new Simulator[this.segment_count];
+    
+    for (int i = 0; i < this.segment_count; i++) {
+      Simulator segment = new Simulator();
+      
+      segment.LOG_LEVEL = this.log_level;
+      segment.NODES = this.nodes;
+      segment.PACKETS_EACH = this.packets_each;
+      segment.DURATION = this.duration;
+      segment.PACKET_SIZE = this.packet_size;
+      segment.MEDIUM_SPEED = this.medium_speed;
+      segment.INTER_FRAME_DELAY = segment.interFrameDelay(this.load);
+      segment.SCHEDULER = this.scheduler;
+      segment.COLLISIONS = this.collisions;
+      segment.SEED = seeds.split().nextLong();
+      segment.SEGMENT = i;
+      segment.FIRST_NODE_ID = i * (this.nodes + 1);
+      segment.BRIDGED = true;
+      segment.JMX = this.jmx;
+      
+      segment.createNodes();
+      this.stations.addAll(segment.getStations());
+      this.segments[i] = segment;
+    }
+    
+    for (Simulator segment : this.segments) {
+      segment.chooseDestinations(this.stations);
+      segment.startTraffic();
+    }
+  }
+  
+  /**
+   Simulate the segments window by window until none of them has anything left to do
+  */
+  void run() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(this.threads);
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+    
+    for (final Simulator segment : this.segments) {
+      tasks.add(new Callable<Boolean>() {
+        public Boolean call() {
+          return segment.runUntil(window_end);
+        }
+      });
+    }
+    
+    try {
+      while (true) {
+        long earliest = Long.MAX_VALUE;
+        
+        for (Simulator segment : this.segments) {
+          earliest = Math.min(earliest, segment.nextActivity());
+        }
+        
+        if (earliest == Long.MAX_VALUE) {
+          break;
+        }
+        
+        /**
+         Nothing happens anywhere before the earliest activity, so the window starts there if that's later
+        */
+        this.window_end = Math.max(this.window_end, earliest) + this.bridge_latency;
+        
+        for (Future<Boolean> window : pool.invokeAll(tasks)) {
+          window.get();
+        }
+        
+        this.windows++;
+        this.forward();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    
+    for (Simulator segment : this.segments) {
+      segment.finish();
+    }
+  }
+  
+  /**
+   Carry every frame that reached a bridge port during the last window across to its destination's segment.  They're
+   received no earlier than the start of the window, so they're due no earlier than the end of it
+  */
+  private void forward() {
+    for (Simulator segment : this.segments) {
+      for (Event frame : segment.takeForwarded()) {
+        Node destination = frame.getOrigin().getDestinationNode();
+        Simulator target = this.segments[destination.getSegment()];
+        
+        Event across = new Event(target.getBridge(), destination, frame.getPayloadSize(), frame.getCrc(),
+                                 frame.getFinished() + this.bridge_latency, frame.getStarted(), (short)0);
+        across.setOrigin(frame.getOrigin());
+        across.setEarlierRetries(frame.getTotalRetries());
+        
+        target.inject(across);
+        this.bridged_frames++;
+      }
+    }
+  }
+  
+  /**
+   Print a summary of each segment, then the end to end statistics of every station
+  */
+  void statistics() {
+    StatisticsAccumulator totals = new StatisticsAccumulator(this.stations.size());
+    
+    System.out.println("Simulated " + this.segment_count + " segments of " + this.nodes + " nodes in " + this.windows + " windows on " + this.threads + " threads, " + this.bridged_frames + " frames crossed the bridge");
+    
+    for (Simulator segment : this.segments) {
+      System.out.println("Segment " + segment.SEGMENT + ": " + segment.getInitialFrames() + " frames queued, " + segment.getFramesDelivered() + " frames delivered, " + segment.getRetriedFrames() + " retried frames and " + segment.getDroppedFrames() + " dropped frames");
+      totals.add(segment.getAccumulator());
+    }
+    
+    StatisticsReport.print(System.out, this.stations, totals, this.segments[0].MEDIUM_SPEED);
+  }
+}
@@ -0,0 +1,360 @@
+package ethernet;
+
+import java.util.*;
+
+/**
+ The shared medium as a physical bus.  Each transmission's signal spreads out from its sender in both directions, so
+ every node hears it from when its first bit arrives until its last bit has gone by, and a sender finds out about a
+ collision when the first bit of somebody else's signal reaches it.
+ 
+ A signal is sensed the tick after it arrives, so transmissions started in the same tick can't see each other before
+ they begin whatever order they're started in, and carrier is still sensed for the interframe gap after the last bit.
+ A sender that detects a collision stops sending its frame and sends a jam instead, and the frame has to be resent.
+ 
+ Whenever transmissions start, the time each of the k transmissions still going hears one of the others is worked out
+ in O(k log k): with the senders sorted by position, the first signal to reach a sender from its left is the one with
+ the smallest start - position (in ticks), and from its right the smallest start + position, so prefix and suffix
+ minima give every sender its detection time.  A transmission that stopped before the latest ones began isn't a
+ sender any more, but its signal may not have reached them yet: a jam can be shorter than a signal takes to cross the
+ bus from 100Mbps up.  The transmissions starting are checked against each of those as well, in O(k m) for the m whose
+ signals are still on the bus.
+*/
+public class Bus {
+  /**
+   Bits of jam sent after detecting a collision
+  */
+  static final int JAM_BITS = 32;
+  /**
+   Bits of idle time a node waits for after the medium goes quiet before it sends
+  */
+  static final int INTERFRAME_GAP = 96;
+  
+  /**
+   A frame being sent, or whose signal is still crossing the bus
+  */
+  static class Transmission {
+    final Event event;
+    final long start;
+    /**
+     When the last bit of the frame would have been sent
+    */
+    final long complete;
+    /**
+     When the sender stops, at the end of the frame or of the jam
+    */
+    long end;
+    /**
+     When the sender first hears another signal, Long.MAX_VALUE if it hasn't
+    */
+    long detected = Long.MAX_VALUE;
+    /**
+     Whether the collision and the end of the transmission have been handed back to the simulation
+    */
+    boolean reported_collision = false, reported_end = false;
+    
+    Transmission(Event event, long start, long complete) {
+      this.event = event;
+      this.start = start;
+      this.complete = complete;
+      this.end = complete;
+    }
+    
+    /**
+     @return Whether the sender heard another signal before it finished sending the frame
+    */
+    boolean collided() {
+      return this.detected < this.complete;
+    }
+  }
+  
+  private PropagationTable propagation;
+  /**
+   Ticks a signal takes to travel a meter
+  */
+  private double ticks_per_meter;
+  /**
+   Ticks a signal takes to get from one end of the bus to the other
+  */
+  private int longest_delay = 0;
+  /**
+   Every transmission whose signal is still on the bus, in the order they started
+  */
+  private ArrayList<Transmission> transmissions = new ArrayList<Transmission>();
+  
+  /**
+   @param nodes The nodes on the bus
+   @param propagation The delays between them
+   @param medium_speed The speed of the medium in bits per second, one bit is one tick of the simulation
+  */
+  public Bus(List<Node> nodes, PropagationTable propagation, int medium_speed) {
+    this.propagation = propagation;
+    this.ticks_per_meter = (double)medium_speed / PropagationTable.SPEED_OF_LIGHT_IN_COPPER;
+    
+    Node left = nodes.get(0), right = nodes.get(0);
+    
+    for (Node node : nodes) {
+      left = (node.getDistance() < left.getDistance() ? node : left);
+      right = (node.getDistance() > right.getDistance() ? node : right);
+    }
+    
+    this.longest_delay = propagation.delay(left.getId(), right.getId());
+  }
+  
+  /**
+   @return Whether the node hears anything on the bus (or is sending itself) at the given tick
+  */
+  public boolean senses(Node node, long tick) {
+    for (Transmission transmission : this.transmissions) {
+      if (this.heard(transmission, node, tick)) {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  /**
+   @return The first tick from the given one that the node won't hear anything, as far as is known so far
+  */
+  public long idleAt(Node node, long tick) {
+    boolean moved = true;
+    
+    while (moved) {
+      moved = false;
+      
+      for (Transmission transmission : this.transmissions) {
+        if (this.heard(transmission, node, tick)) {
+          tick = this.quietAt(transmission, node);
+          moved = true;
+        }
+      }
+    }
+    
+    return tick;
+  }
+  
+  /**
+   Start sending a frame
+   
+   @param duration How many ticks the whole frame takes to send
+  */
+  public void transmit(Event event, long tick, long duration) {
+    this.transmissions.add(new Transmission(event, tick, tick + duration));
+  }
+  
+  /**
+   Work out when every sender still going hears one of the others, once the transmissions for a tick have started
+  */
+  public void detectCollisions(long tick) {
+    ArrayList<Transmission> sending = new ArrayList<Transmission>();
+    
+    for (Transmission transmission : this.transmissions) {
+      if (transmission.end > tick) {
+        sending.add(transmission);
+      }
+    }
+    
+    /**
+     The senders already going were checked against every stopped transmission when they started.  A signal that
+     arrives by this tick has either been heard, so the new sender would have deferred, or gone by
+    */
+    for (Transmission transmission : sending) {
+      if (transmission.start == tick) {
+        for (Transmission stopped : this.transmissions) {
+          if (stopped.end <= tick && stopped.start + this.propagation.delay(stopped.event.getSource().getId(), transmission.event.getSource().getId()) + 1 > tick) {
+            this.hears(transmission, stopped);
+          }
+        }
+      }
+    }
+    
+    if (sending.size() < 2) {
+      return;
+    }
+    
+    sending.sort(new Comparator<Transmission>() {
+      public int compare(Transmission a, Transmission b) {
+        return Integer.compare(a.event.getSource().getDistance(), b.event.getSource().getDistance());
+      }
+    });
+    
+    /**
+     The first signal to arrive from the left, then from the right
+    */
+    int first = -1;
+    double earliest = 0.0;
+    
+    for (int i = 0; i < sending.size(); i++) {
+      Transmission transmission = sending.get(i);
+      double front = transmission.start - this.ticks_per_meter * transmission.event.getSource().getDistance();
+      
+      if (first >= 0) {
+        this.hears(transmission, sending.get(first));
+      }
+      
+      if (first < 0 || front < earliest) {
+        first = i;
+        earliest = front;
+      }
+    }
+    
+    first = -1;
+    
+    for (int i = sending.size() - 1; i >= 0; i--) {
+      Transmission transmission = sending.get(i);
+      double front = transmission.start + this.ticks_per_meter * transmission.event.getSource().getDistance();
+      
+      if (first >= 0) {
+        this.hears(transmission, sending.get(first));
+      }
+      
+      if (first < 0 || front < earliest) {
+        first = i;
+        earliest = front;
+      }
+    }
+  }
+  
+  /**
+   @return The transmissions whose senders have detected a collision by the given tick, each one only once
+  */
+  public List<Transmission> collisions(long tick) {
+    List<Transmission> collided = null;
+    
+    for (Transmission transmission : this.transmissions) {
+      if (!transmission.reported_collision && transmission.collided() && transmission.detected <= tick) {
+        transmission.reported_collision = true;
+        
+        if (collided == null) {
+          collided = new ArrayList<Transmission>();
+        }
+        
+        collided.add(transmission);
+      }
+    }
+    
+    return (collided != null ? collided : Collections.<Transmission>emptyList());
+  }
+  
+  /**
+   @return The transmissions whose senders have stopped by the given tick, each one only once
+  */
+  public List<Transmission> ended(long tick) {
+    List<Transmission> ended = null;
+    
+    for (Transmission transmission : this.transmissions) {
+      if (!transmission.reported_end && transmission.end <= tick) {
+        transmission.reported_end = true;
+        
+        if (ended == null) {
+          ended = new ArrayList<Transmission>();
+        }
+        
+        ended.add(transmission);
+      }
+    }
+    
+    return (ended != null ? ended : Collections.<Transmission>emptyList());
+  }
+  
+  /**
+   Forget the transmissions whose signals have left the bus by the given tick
+  */
+  public void expire(long tick) {
+    for (int i = 0; i < this.transmissions.size(); i++) {
+      Transmission transmission = this.transmissions.get(i);
+      
+      if (transmission.reported_end && tick >= transmission.end + this.longest_delay + 1 + INTERFRAME_GAP) {
+        this.transmissions.remove(i);
+        i--;
+      }
+    }
+  }
+  
+  /**
+   @return The first tick after the given one at which a sender detects a collision or stops, Long.MAX_VALUE if none will
+  */
+  public long nextChange(long tick) {
+    long next = Long.MAX_VALUE;
+    
+    for (Transmission transmission : this.transmissions) {
+      if (!transmission.reported_collision && transmission.collided()) {
+        next = Math.min(next, transmission.detected);
+      }
+      
+      if (!transmission.reported_end) {
+        next = Math.min(next, transmission.end);
+      }
+    }
+    
+    return (next == Long.MAX_VALUE ? next : Math.max(next, tick + 1));
+  }
+  
+  /**
+   @return Whether any sender hasn't stopped yet
+  */
+  public boolean hasPending() {
+    for (Transmission transmission : this.transmissions) {
+      if (!transmission.reported_end) {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  /**
+   @return How many transmissions still have a signal on the bus
+  */
+  public int size() {
+    return this.transmissions.size();
+  }
+  
+  List<Transmission> getTransmissions() {
+    return this.transmissions;
+  }
+  
+  /**
+   Put back a transmission from a checkpoint
+  */
+  void restore(Transmission transmission) {
+    this.transmissions.add(transmission);
+  }
+  
+  /**
+   The sender of the target hears the other transmission when its first bit arrives, and stops to jam if that's before
+   it's finished
+  */
+  private void hears(Transmission target, Transmission other) {
+    long arrival = other.start + this.propagation.delay(other.event.getSource().getId(), target.event.getSource().getId()) + 1;
+    
+    if (arrival < target.detected) {
+      target.detected = arrival;
+      
+      if (arrival < target.complete) {
+        target.end = arrival + JAM_BITS;
+      }
+    }
+  }
+  
+  private boolean heard(Transmission transmission, Node node, long tick) {
+    if (transmission.event.getSource() == node) {
+      return tick < transmission.end + INTERFRAME_GAP;
+    }
+    
+    long delay = this.propagation.delay(transmission.event.getSource().getId(), node.getId());
+    
+    return (transmission.start + delay + 1 <= tick && tick < transmission.end + delay + 1 + INTERFRAME_GAP);
+  }
+  
+  /**
+   @return The tick the node stops hearing the transmission
+  */
+  private long quietAt(Transmission transmission, Node node) {
+    if (transmission.event.getSource() == node) {
+      return transmission.end + INTERFRAME_GAP;
+    }
+    
+    return transmission.end + this.propagation.delay(transmission.event.getSource().getId(), node.getId()) + 1 + INTERFRAME_GAP;
+  }
+}
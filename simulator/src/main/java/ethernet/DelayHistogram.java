@@ -0,0 +1,133 @@
+package ethernet;
+
+/**
+ Streaming histogram of delays (in ticks) that can answer percentile queries without keeping the samples.
+ 
+ Delays below 16 ticks get a bucket each, above that every power of two is split into 8 buckets, so a percentile is
+ reported to within 12.5% of the true value while the whole histogram stays a fixed size.
+*/
+public class DelayHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = LINEAR_BUCKETS + (63 - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS;
+  
+  private long[] counts = new long[BUCKETS];
+  private long count = 0;
+  private long max = 0;
+  
+  public void record(long delay) {
+    this.counts[bucketFor(Math.max(delay, 0))]++;
+    this.count++;
+    this.max = Math.max(this.max, delay);
+  }
+  
+  /**
+   @param percentile The percentile to look up, between 0 and 100
+   @return The delay at the given percentile (the upper end of its bucket, capped to the largest delay seen)
+  */
+  public long percentile(double percentile) {
+    long rank = (long)Math.ceil((percentile / 100.0) * this.count);
+    long seen = 0;
+    
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += this.counts[i];
+      
+      if (seen >= rank && seen > 0) {
+        return Math.min(upperBound(i), this.max);
+      }
+    }
+    
+    return this.max;
+  }
+  
+  public long getCount() {
+    return this.count;
+  }
+  
+  public long getMax() {
+    return this.max;
+  }
+  
+  /**
+   Count everything recorded in another histogram as if it had been recorded in this one
+  */
+  public void add(DelayHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.counts[i] += other.counts[i];
+    }
+    
+    this.count += other.count;
+    this.max = Math.max(this.max, other.max);
+  }
+  
+  /**
+   Forget everything recorded so far
+  */
+  public void reset() {
+    java.util.Arrays.fill(this.counts, 0);
+    this.count = 0;
+    this.max = 0;
+  }
+  
+  /**
+   Write out the non-empty buckets for a checkpoint
+  */
+  void write(java.io.DataOutput out) throws java.io.IOException {
+    int used = 0;
+    
+    for (int i = 0; i < BUCKETS; i++) {
+      used += (this.counts[i] > 0 ? 1 : 0);
+    }
+    
+    out.writeLong(this.count);
+    out.writeLong(this.max);
+    out.writeInt(used);
+    
+    for (int i = 0; i < BUCKETS; i++) {
+      if (this.counts[i] > 0) {
+        out.writeShort(i);
+        out.writeLong(this.counts[i]);
+      }
+    }
+  }
+  
+  /**
+   @return The histogram as it was when write() was called
+  */
+  static DelayHistogram read(java.io.DataInput in) throws java.io.IOException {
+    DelayHistogram histogram = new DelayHistogram();
+    
+    histogram.count = in.readLong();
+    histogram.max = in.readLong();
+    
+    for (int used = in.readInt(); used > 0; used--) {
+      int bucket = in.readShort();
+      histogram.counts[bucket] = in.readLong();
+    }
+    
+    return histogram;
+  }
+  
+  private static int bucketFor(long delay) {
+    if (delay < LINEAR_BUCKETS) {
+      return (int)delay;
+    }
+    
+    int exponent = 63 - Long.numberOfLeadingZeros(delay);
+    int sub_bucket = (int)((delay >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    
+    return LINEAR_BUCKETS + (exponent - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS + sub_bucket;
+  }
+  
+  private static long upperBound(int bucket) {
+    if (bucket < LINEAR_BUCKETS) {
+      return bucket;
+    }
+    
+    int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + (SUB_BUCKET_BITS + 1);
+    int sub_bucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+    
+    return ((long)(SUB_BUCKETS + sub_bucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
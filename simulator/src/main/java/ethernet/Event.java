@@ -0,0 +1,165 @@
+package ethernet;
+
+public class Event {
+  /**
+   Where are we sending from
+  */
+  private Node source;
+  /**
+   Where are we sending to
+  */
+  private Node destination;
+  /**
+   The node that first sent the frame, the same as the source unless it's been carried across a bridge
+  */
+  private Node origin;
+  /**
+   The parts of the frame the simulation needs, getFrame() builds the rest when it's wanted
+  */
+  private int payload_size;
+  private int crc;
+  /**
+   When should this packet get sent?  During which simulation cycle
+  */
+  private long time_slot;
+  /**
+   Order in which the event was queued, used to keep events in the same time slot in first come, first served order
+  */
+  private long sequence = 0;
+  /**
+   How many times have we retried sending the frame?
+  */
+  private short retries = 0;
+  /**
+   Retries on the segments a bridged frame crossed before this one, each segment has its own limit on the retries
+  */
+  private int earlier_retries = 0;
+  /**
+   Delay related metrics
+  */
+  private long started_at = 0, finished_at = 0;
+  
+  public Event(Node source, Node destination, int payload_size, int crc, long time_slot) {
+    this.source       = source;
+    this.destination  = destination;
+    this.origin       = source;
+    this.payload_size = payload_size;
+    this.crc          = crc;
+    this.time_slot    = time_slot;
+    /**
+     Started at contains the time of the first scheduled attempt to send the frame for the purpose of tracking delay
+    */
+    this.started_at   = time_slot;
+    this.retries      = 0;
+  }
+  
+  /**
+   Recreate an event that's already been queued (and possibly retried) before
+  */
+  public Event(Node source, Node destination, int payload_size, int crc, long time_slot, long started_at, short retries) {
+    this(source, destination, payload_size, crc, time_slot);
+    
+    this.started_at   = started_at;
+    this.retries      = retries;
+  }
+  
+  public long setTimeSlot(long time_slot) {
+    this.time_slot = time_slot;
+    
+    return this.time_slot;
+  }
+  
+  public long getTimeSlot() {
+    return this.time_slot;
+  }
+  
+  public long setSequence(long sequence) {
+    this.sequence = sequence;
+    
+    return this.sequence;
+  }
+  
+  public long getSequence() {
+    return this.sequence;
+  }
+  
+  private long propogationDelay() {
+    return this.source.propagationDelayTo(this.destination);
+  }
+  
+  public long getFinishedSlot() {
+    return (this.time_slot + this.source.ticksToSend(this.payload_size) + this.propogationDelay());
+  }
+  
+  public Node getSource() {
+    return this.source;
+  }
+  
+  public Node getDestination() {
+    return this.destination;
+  }
+  
+  public Node getOrigin() {
+    return this.origin;
+  }
+  
+  public void setOrigin(Node origin) {
+    this.origin = origin;
+  }
+  
+  public int getPayloadSize() {
+    return this.payload_size;
+  }
+  
+  public int getCrc() {
+    return this.crc;
+  }
+  
+  /**
+   @return The frame this event sends, as it would appear on the wire
+  */
+  public Frame getFrame() {
+    return new Frame(this.source, this.destination, this.payload_size, this.crc);
+  }
+  
+  public short getRetries() {
+    return this.retries;
+  }
+  
+  public short incrementRetries() {
+    return ++this.retries;
+  }
+  
+  public int getEarlierRetries() {
+    return this.earlier_retries;
+  }
+  
+  public void setEarlierRetries(int earlier_retries) {
+    this.earlier_retries = earlier_retries;
+  }
+  
+  /**
+   @return How many times the frame has been retried on every segment it's crossed
+  */
+  public int getTotalRetries() {
+    return this.earlier_retries + this.retries;
+  }
+  
+  public long setFinished(long timer) {
+    this.finished_at = timer;
+    
+    return this.finished_at;
+  }
+  
+  public long getStarted() {
+    return this.started_at;
+  }
+  
+  public long getFinished() {
+    return this.finished_at;
+  }
+  
+  public String toString() {
+    return "Event - From: " + this.source + " to: " + this.destination + " start time: " + this.getTimeSlot() + " end time: " + this.getFinishedSlot();
+  }
+}
\ No newline at end of file
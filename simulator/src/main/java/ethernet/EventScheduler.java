@@ -0,0 +1,31 @@
+package ethernet;
+
+/**
+ A queue of network events that have yet to be processed, ordered by the time slot they should be sent in.
+ 
+ Events that share a time slot come back out in the order they were added, each implementation stamps the
+ events it is given with an increasing sequence number to break those ties.
+*/
+public interface EventScheduler {
+  /**
+   Queue an event to be sent during its time slot
+   
+   @param event The event to queue
+  */
+  public void add(Event event);
+  
+  /**
+   @return The next event to be sent, without removing it, or null if nothing is queued
+  */
+  public Event peek();
+  
+  /**
+   @return The next event to be sent, removing it from the queue, or null if nothing is queued
+  */
+  public Event poll();
+  
+  /**
+   @return How many events are queued
+  */
+  public int size();
+}
@@ -0,0 +1,77 @@
+package ethernet;
+
+import java.util.*;
+
+/**
+ An 802.3 frame as it would appear on the wire.  The simulation only needs the payload size and CRC, which events
+ carry themselves, so frames are only built when we want to look at one.
+*/
+public class Frame {
+  /**
+   7 octects
+  */
+  private static final String PREAMBLE = "10101010101010101010101010101010101010101010101010101010";
+  /**
+   1 octet
+  */
+  private static final String START_DELIMITER = "10101011";
+  /**
+   4 octets
+  */
+  private static final int VLAN_TAG = 0;
+  /**
+   2 octets
+  */
+  private static final short ETHERTYPE = 0x800;
+  
+  /**
+   6 octets each, packed into the low 48 bits
+  */
+  private long destination;
+  private long source;
+  private int payload_size;
+  private int crc;
+  
+  public Frame(Node source, Node destination, int payload_size, int crc) {
+    this.destination = destination.getMac();
+    this.source = source.getMac();
+    
+    /**
+     Valid size range:
+     42 - 1500 octets
+    */
+    this.payload_size = payload_size;
+    
+    /**
+     4 octets
+     We don't particularly care what it is for the simulation right now
+    */
+    this.crc = crc;
+  }
+  
+  public int getPayloadSize() {
+    return this.payload_size;
+  }
+  
+  public int getCrc() {
+    return this.crc;
+  }
+  
+  /**
+   @return time to transmit the frame in (our time clock is 1 bit per iteration of the simulator)
+  */
+  public double timeToTransmit() {
+    return timeToTransmit(this.payload_size);
+  }
+  
+  /**
+   @return time to transmit a frame with the given payload size
+  */
+  public static double timeToTransmit(int payload_size) {
+    return (42 + (float)payload_size * 8);
+  }
+  
+  public String toString() {
+    return PREAMBLE + "|" + START_DELIMITER + "|" + Node.formatMac(this.destination) + "|" + Node.formatMac(this.source) + "|" + VLAN_TAG + "|0x" + Integer.toHexString(ETHERTYPE) + "|<" + this.payload_size + " bytes>|0x" + Integer.toHexString(this.crc);
+  }
+}
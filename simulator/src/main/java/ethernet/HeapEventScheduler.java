@@ -0,0 +1,92 @@
+package ethernet;
+
+/**
+ Event scheduler backed by a binary heap (an array with the earliest event at index 0).
+ 
+ Adding and removing events are both O(log n), which keeps requeueing the frames from a collision cheap no matter
+ how many events are waiting.
+*/
+public class HeapEventScheduler implements EventScheduler {
+  private Event[] heap = new Event[64];
+  private int size = 0;
+  /**
+   Tie breaker for events in the same time slot
+  */
+  private long sequence = 0;
+  
+  public void add(Event event) {
+    event.setSequence(this.sequence++);
+    
+    if (this.size == this.heap.length) {
+      this.heap = java.util.Arrays.copyOf(this.heap, this.size * 2);
+    }
+    
+    /**
+     Sift the new event up from the bottom of the heap until its parent comes before it
+    */
+    int i = this.size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      
+      if (!before(event, this.heap[parent])) {
+        break;
+      }
+      
+      this.heap[i] = this.heap[parent];
+      i = parent;
+    }
+    
+    this.heap[i] = event;
+  }
+  
+  public Event peek() {
+    return (this.size > 0 ? this.heap[0] : null);
+  }
+  
+  public Event poll() {
+    if (this.size == 0) {
+      return null;
+    }
+    
+    Event first = this.heap[0];
+    Event last = this.heap[--this.size];
+    this.heap[this.size] = null;
+    
+    /**
+     Sift the last event down from the top of the heap until both of its children come after it
+    */
+    if (this.size > 0) {
+      int i = 0, half = this.size >>> 1;
+      
+      while (i < half) {
+        int child = (i << 1) + 1;
+        
+        if (child + 1 < this.size && before(this.heap[child + 1], this.heap[child])) {
+          child++;
+        }
+        
+        if (!before(this.heap[child], last)) {
+          break;
+        }
+        
+        this.heap[i] = this.heap[child];
+        i = child;
+      }
+      
+      this.heap[i] = last;
+    }
+    
+    return first;
+  }
+  
+  public int size() {
+    return this.size;
+  }
+  
+  /**
+   @return True if e1 should be sent before e2
+  */
+  private static boolean before(Event e1, Event e2) {
+    return (e1.getTimeSlot() < e2.getTimeSlot() || (e1.getTimeSlot() == e2.getTimeSlot() && e1.getSequence() < e2.getSequence()));
+  }
+}
@@ -0,0 +1,334 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+
+public class Node {
+  private static final long MAC_MASK = 0xFFFFFFFFFFFFL;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  
+  /**
+   Index of the node in the simulation, used to look up per node and per pair data in arrays
+  */
+  private int id = 0;
+  /**
+   Which segment of a bridged network the node is on, 0 for a single segment
+  */
+  private int segment = 0;
+  /**
+   The 48 bit MAC address, the textual form is only built when it's asked for
+  */
+  private long mac_address = 0;
+  /**
+   How fast the node's interface sends, in bits per second
+  */
+  private int bandwidth = 0;
+  /**
+   The fewest ticks a frame holds the medium for, short frames are carried on to the slot time on half duplex gigabit
+  */
+  private long carrier_extension = 0;
+  private int distance = 0;
+  private long first_frame_sent = 0;
+  private long last_frame_sent = 0;
+  
+  private Node destinationNode;
+  /**
+   Propagation delays to the other nodes on the segment
+  */
+  private PropagationTable propagation;
+  /**
+   Where the frames this node sends come from
+  */
+  private TrafficSource traffic;
+  
+  /**
+   The node's own stream of randomness, for its traffic and its backoff
+  */
+  private SimulationRandom generator;
+  
+  /**
+   Where the node's CSMA/CD MAC has got to with the frame at the head of its queue, with the bus collision model
+  */
+  enum MacState { IDLE, DEFERRING, TRANSMITTING, BACKOFF }
+  
+  private MacState state = MacState.IDLE;
+  /**
+   The frames that have arrived at the node and are waiting their turn, the head is the one the MAC is working on
+  */
+  private ArrayDeque<Event> transmit_queue = new ArrayDeque<Event>();
+  /**
+   The tick the node next wants the medium at while it's IDLE with a frame queued or in BACKOFF, and the order it
+   became ready in to break ties between nodes ready at the same tick
+  */
+  private long ready_at = 0;
+  private long ready_order = 0;
+  
+  /**
+   @param id Index of the node in the simulation
+   @param random The simulation's source of randomness, the node splits its own stream off of it
+  */
+  public Node(int id, SimulationRandom random) {
+    SimulationRandom generator = random.split();
+    
+    this.id = id;
+    this.generator = generator;
+    
+    this.mac_address = generator.nextLong() & MAC_MASK;
+    this.bandwidth = 10000000; // 10Mbps
+    this.distance = generator.nextInt(250) * (generator.nextBoolean() ? -1 : 1);
+  }
+  
+  /**
+   Recreate a node that was part of an earlier simulation, from its recorded MAC address and position.  It has no
+   randomness of its own so it can't take part in a new simulation
+  */
+  public Node(int id, long mac_address, int distance) {
+    this.id = id;
+    this.mac_address = mac_address & MAC_MASK;
+    this.bandwidth = 10000000; // 10Mbps
+    this.distance = distance;
+  }
+  
+  public int getId() {
+    return this.id;
+  }
+  
+  public int getSegment() {
+    return this.segment;
+  }
+  
+  public void setSegment(int segment) {
+    this.segment = segment;
+  }
+  
+  public Node getDestinationNode() {
+    return this.destinationNode;
+  }
+  
+  public void setDestinationNode(Node node) {
+    this.destinationNode = node;
+  }
+  
+  public long getFirstFrameSeen() {
+    return this.first_frame_sent;
+  }
+  
+  public long getLastFrameSeen() {
+    return this.last_frame_sent;
+  }
+  
+  public void setFirstFrameSent(long time) {
+    this.first_frame_sent = time;
+  }
+  
+  public void setLastFrameSent(long time) {
+    this.last_frame_sent = time;
+  }
+  
+  public long getMac() {
+    return this.mac_address;
+  }
+  
+  public String getMacAddress() {
+    return formatMac(this.mac_address);
+  }
+  
+  /**
+   @return The MAC address packed in the low 48 bits as six colon separated pairs of hex digits
+  */
+  public static String formatMac(long mac) {
+    char[] text = new char[17];
+    
+    for (int octet = 0; octet < 6; octet++) {
+      int value = (int)(mac >>> ((5 - octet) * 8)) & 0xff;
+      
+      text[octet * 3] = HEX_DIGITS[value >>> 4];
+      text[octet * 3 + 1] = HEX_DIGITS[value & 0xf];
+      
+      if (octet < 5) {
+        text[octet * 3 + 2] = ':';
+      }
+    }
+    
+    return new String(text);
+  }
+  
+  public TrafficSource getTrafficSource() {
+    return this.traffic;
+  }
+  
+  public void setTrafficSource(TrafficSource traffic) {
+    this.traffic = traffic;
+  }
+  
+  public void setPropagationTable(PropagationTable propagation) {
+    this.propagation = propagation;
+  }
+  
+  /**
+   @return How many bits it takes for a signal from this node to reach the given one
+  */
+  public int propagationDelayTo(Node node) {
+    return this.propagation.delay(this.id, node.getId());
+  }
+  
+  public SimulationRandom getRandom() {
+    return this.generator;
+  }
+  
+  public void setRandom(SimulationRandom generator) {
+    this.generator = generator;
+  }
+  
+  public int getDistance() {
+    return this.distance;
+  }
+  
+  /**
+   Move the node, only before the delays between the nodes have been worked out
+  */
+  public void setDistance(int distance) {
+    this.distance = distance;
+  }
+  
+  public int getBandwidth() {
+    return this.bandwidth;
+  }
+  
+  public void setBandwidth(int bandwidth) {
+    this.bandwidth = bandwidth;
+  }
+  
+  public void setCarrierExtension(long carrier_extension) {
+    this.carrier_extension = carrier_extension;
+  }
+  
+  /**
+   @return How many ticks it takes the node to send a frame with the given payload, at the speed of its interface and
+           extended to the carrier extension
+  */
+  public long ticksToSend(int payload_size) {
+    long bits = (long)Frame.timeToTransmit(payload_size);
+    int medium_speed = this.propagation.getMediumSpeed();
+    
+    return Math.max(this.carrier_extension, (this.bandwidth == medium_speed ? bits : (bits * medium_speed + this.bandwidth - 1) / this.bandwidth));
+  }
+  
+  public MacState getState() {
+    return this.state;
+  }
+  
+  public void setState(MacState state) {
+    this.state = state;
+  }
+  
+  /**
+   Add a frame that has arrived to the back of the transmit queue
+  */
+  public void enqueue(Event event) {
+    this.transmit_queue.addLast(event);
+  }
+  
+  /**
+   @return The frame the MAC is working on, or null if the queue is empty
+  */
+  public Event peekFrame() {
+    return this.transmit_queue.peekFirst();
+  }
+  
+  /**
+   @return The frame the MAC has finished with (sent or dropped), taken off the queue
+  */
+  public Event pollFrame() {
+    return this.transmit_queue.pollFirst();
+  }
+  
+  public int getQueueLength() {
+    return this.transmit_queue.size();
+  }
+  
+  /**
+   @return The frames in the transmit queue, head first
+  */
+  public Collection<Event> getQueuedFrames() {
+    return this.transmit_queue;
+  }
+  
+  public long getReadyAt() {
+    return this.ready_at;
+  }
+  
+  public long getReadyOrder() {
+    return this.ready_order;
+  }
+  
+  public void setReady(long ready_at, long ready_order) {
+    this.ready_at = ready_at;
+    this.ready_order = ready_order;
+  }
+  
+  /**
+   Write out the node's own state for a checkpoint, its destination, traffic source and queued frames are up to the
+   simulation
+  */
+  void write(DataOutput out) throws IOException {
+    out.writeInt(this.id);
+    out.writeLong(this.mac_address);
+    out.writeInt(this.bandwidth);
+    out.writeInt(this.distance);
+    out.writeInt(this.segment);
+    out.writeLong(this.first_frame_sent);
+    out.writeLong(this.last_frame_sent);
+    out.writeUTF(this.state.name());
+    out.writeLong(this.ready_at);
+    out.writeLong(this.ready_order);
+    out.writeBoolean(this.generator != null);
+    
+    if (this.generator != null) {
+      out.writeLong(this.generator.getSeed());
+      out.writeLong(this.generator.getGamma());
+    }
+  }
+  
+  /**
+   @return A node as it was when write() was called
+  */
+  static Node read(DataInput in) throws IOException {
+    Node node = new Node(in.readInt(), in.readLong(), 0);
+    
+    node.readState(in);
+    
+    return node;
+  }
+  
+  /**
+   Put the node back as it was when write() was called, to roll back a worker of the optimistic engine (see
+   TimeWarpEngine).  Its destination, traffic source and queued frames are up to the simulation
+  */
+  void rollBack(DataInput in) throws IOException {
+    if (in.readInt() != this.id || in.readLong() != this.mac_address) {
+      throw new IllegalStateException("Rolling back " + this + " to another node's state");
+    }
+    
+    this.readState(in);
+  }
+  
+  private void readState(DataInput in) throws IOException {
+    this.bandwidth = in.readInt();
+    this.distance = in.readInt();
+    this.segment = in.readInt();
+    this.first_frame_sent = in.readLong();
+    this.last_frame_sent = in.readLong();
+    this.state = MacState.valueOf(in.readUTF());
+    this.ready_at = in.readLong();
+    this.ready_order = in.readLong();
+    
+    if (in.readBoolean()) {
+      this.generator = new SimulationRandom(in.readLong(), in.readLong());
+    }
+  }
+  
+  public String toString() {
+    return this.getMacAddress();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ Event scheduler that keeps its events outside of the Java heap, so the number of frames queued up front is limited
+ by memory and disk rather than by -Xmx, and the garbage collector never has to look at them.
+ 
+ Each event is packed into a fixed width record (time slot, sequence, started/finished times, source and destination
+ node index, payload size, CRC and retries) and the records are kept in a binary heap laid out over a series of
+ segments.  Segments are allocated as direct buffers until the memory budget is used up, after that they're mapped
+ from a spill file.
+ 
+ Events only exist as objects while they're being peeked at, polled or added, the store holds nothing but the records.
+*/
+public class OffHeapEventStore implements EventScheduler {
+  /**
+   Record layout, in bytes
+  */
+  private static final int TIME_SLOT = 0;
+  private static final int SEQUENCE = 8;
+  private static final int STARTED = 16;
+  private static final int FINISHED = 24;
+  private static final int SOURCE = 32;
+  private static final int DESTINATION = 36;
+  private static final int PAYLOAD_SIZE = 40;
+  private static final int CRC = 44;
+  private static final int RETRIES = 48;
+  static final int RECORD_SIZE = 56;
+  
+  /**
+   How many records fit in each segment unless told otherwise (about 3.5MB), as a power of two
+  */
+  static final int DEFAULT_SEGMENT_BITS = 16;
+  
+  private final int segment_bits;
+  private final int segment_records;
+  private final int segment_mask;
+  private final long segment_bytes;
+  
+  /**
+   The nodes records refer to by index
+  */
+  private List<Node> nodes;
+  private ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+  private int direct_segments;
+  
+  private File spill_directory;
+  private FileChannel spill = null;
+  private int spilled_segments = 0;
+  
+  private int size = 0;
+  /**
+   Tie breaker for events in the same time slot
+  */
+  private long sequence = 0;
+  /**
+   The earliest event, built from its record the first time it's peeked at, null if it needs to be built again
+  */
+  private Event head = null;
+  
+  /**
+   @param nodes The nodes of the simulation, records refer to them by index
+   @param memory How many bytes to allocate outside the heap before spilling to disk, with none every segment is spilled
+   @param spill_directory Where to create the spill file
+  */
+  public OffHeapEventStore(List<Node> nodes, long memory, File spill_directory) {
+    this(nodes, memory, spill_directory, DEFAULT_SEGMENT_BITS);
+  }
+  
+  /**
+   @param segment_bits How many records fit in each segment, as a power of two
+  */
+  OffHeapEventStore(List<Node> nodes, long memory, File spill_directory, int segment_bits) {
+    this.nodes = nodes;
+    this.segment_bits = segment_bits;
+    this.segment_records = 1 << segment_bits;
+    this.segment_mask = this.segment_records - 1;
+    this.segment_bytes = (long)this.segment_records * RECORD_SIZE;
+    this.direct_segments = (int)(memory / this.segment_bytes);
+    this.spill_directory = spill_directory;
+  }
+  
+  public void add(Event event) {
+    event.setSequence(this.sequence++);
+    
+    if (this.size == this.segments.size() * this.segment_records) {
+      this.addSegment();
+    }
+    
+    /**
+     Sift a hole up from the bottom of the heap to where the new record belongs, then write it there
+    */
+    int i = this.size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      
+      if (!this.before(event.getTimeSlot(), event.getSequence(), parent)) {
+        break;
+      }
+      
+      this.copy(parent, i);
+      i = parent;
+    }
+    
+    this.write(i, event);
+    
+    if (i == 0) {
+      this.head = null;
+    }
+  }
+  
+  public Event peek() {
+    if (this.head == null && this.size > 0) {
+      this.head = this.read(0);
+    }
+    
+    return this.head;
+  }
+  
+  public Event poll() {
+    Event first = this.peek();
+    
+    if (first == null) {
+      return null;
+    }
+    
+    this.size--;
+    this.head = null;
+    
+    /**
+     Sift a hole down from the top of the heap to where the last record belongs, then move it there
+    */
+    if (this.size > 0) {
+      int last = this.size;
+      long time_slot = this.buffer(last).getLong(this.offset(last) + TIME_SLOT);
+      long sequence = this.buffer(last).getLong(this.offset(last) + SEQUENCE);
+      int i = 0, half = this.size >>> 1;
+      
+      while (i < half) {
+        int child = (i << 1) + 1;
+        
+        if (child + 1 < this.size && this.before(this.timeSlotAt(child + 1), this.sequenceAt(child + 1), child)) {
+          child++;
+        }
+        
+        if (!this.before(this.timeSlotAt(child), this.sequenceAt(child), time_slot, sequence)) {
+          break;
+        }
+        
+        this.copy(child, i);
+        i = child;
+      }
+      
+      this.copy(last, i);
+    }
+    
+    return first;
+  }
+  
+  public int size() {
+    return this.size;
+  }
+  
+  /**
+   Let go of the records and close the spill file, the store is empty from then on
+  */
+  public void close() throws IOException {
+    this.segments.clear();
+    this.size = 0;
+    this.head = null;
+    
+    if (this.spill != null) {
+      this.spill.close();
+      this.spill = null;
+      this.spilled_segments = 0;
+    }
+  }
+  
+  /**
+   @return How many segments have been mapped from the spill file
+  */
+  int getSpilledSegments() {
+    return this.spilled_segments;
+  }
+  
+  /**
+   @return True if the given time slot and sequence come before the record at index i
+  */
+  private boolean before(long time_slot, long sequence, int i) {
+    return this.before(time_slot, sequence, this.timeSlotAt(i), this.sequenceAt(i));
+  }
+  
+  private boolean before(long time_slot, long sequence, long other_time_slot, long other_sequence) {
+    return (time_slot < other_time_slot || (time_slot == other_time_slot && sequence < other_sequence));
+  }
+  
+  private long timeSlotAt(int i) {
+    return this.buffer(i).getLong(this.offset(i) + TIME_SLOT);
+  }
+  
+  private long sequenceAt(int i) {
+    return this.buffer(i).getLong(this.offset(i) + SEQUENCE);
+  }
+  
+  private ByteBuffer buffer(int i) {
+    return this.segments.get(i >>> this.segment_bits);
+  }
+  
+  private int offset(int i) {
+    return (i & this.segment_mask) * RECORD_SIZE;
+  }
+  
+  /**
+   Copy the record at index from over the record at index to
+  */
+  private void copy(int from, int to) {
+    ByteBuffer source = this.buffer(from), target = this.buffer(to);
+    int source_offset = this.offset(from), target_offset = this.offset(to);
+    
+    for (int b = 0; b < RECORD_SIZE; b += 8) {
+      target.putLong(target_offset + b, source.getLong(source_offset + b));
+    }
+  }
+  
+  private void write(int i, Event event) {
+    ByteBuffer buffer = this.buffer(i);
+    int offset = this.offset(i);
+    
+    buffer.putLong(offset + TIME_SLOT, event.getTimeSlot());
+    buffer.putLong(offset + SEQUENCE, event.getSequence());
+    buffer.putLong(offset + STARTED, event.getStarted());
+    buffer.putLong(offset + FINISHED, event.getFinished());
+    buffer.putInt(offset + SOURCE, event.getSource().getId());
+    buffer.putInt(offset + DESTINATION, event.getDestination().getId());
+    buffer.putInt(offset + PAYLOAD_SIZE, event.getPayloadSize());
+    buffer.putInt(offset + CRC, event.getCrc());
+    buffer.putShort(offset + RETRIES, event.getRetries());
+  }
+  
+  private Event read(int i) {
+    ByteBuffer buffer = this.buffer(i);
+    int offset = this.offset(i);
+    int first_id = this.nodes.get(0).getId();
+    Node source = this.nodes.get(buffer.getInt(offset + SOURCE) - first_id);
+    Node destination = this.nodes.get(buffer.getInt(offset + DESTINATION) - first_id);
+    
+    Event event = new Event(source, destination, buffer.getInt(offset + PAYLOAD_SIZE), buffer.getInt(offset + CRC),
+                            buffer.getLong(offset + TIME_SLOT), buffer.getLong(offset + STARTED), buffer.getShort(offset + RETRIES));
+    event.setSequence(buffer.getLong(offset + SEQUENCE));
+    event.setFinished(buffer.getLong(offset + FINISHED));
+    
+    return event;
+  }
+  
+  /**
+   Grow the heap by a segment, in memory while the budget allows and in the spill file after that
+  */
+  private void addSegment() {
+    if (this.segments.size() < this.direct_segments) {
+      this.segments.add(ByteBuffer.allocateDirect((int)this.segment_bytes));
+      return;
+    }
+    
+    try {
+      if (this.spill == null) {
+        File file = File.createTempFile("events", ".spill", this.spill_directory);
+        this.spill = new RandomAccessFile(file, "rw").getChannel();
+        
+        /**
+         The open channel keeps the file around for as long as we need it, and unlinking it now means it's cleaned up
+         however the simulation ends
+        */
+        if (!file.delete()) {
+          file.deleteOnExit();
+        }
+      }
+      
+      this.segments.add(this.spill.map(FileChannel.MapMode.READ_WRITE, this.spilled_segments * this.segment_bytes, this.segment_bytes));
+      this.spilled_segments++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to spill events to " + this.spill_directory, e);
+    }
+  }
+}
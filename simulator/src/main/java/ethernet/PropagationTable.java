@@ -0,0 +1,100 @@
+package ethernet;
+
+import java.util.*;
+
+/**
+ The propagation delay, in bits, between every pair of nodes on the segment.
+ 
+ The nodes never move once they've been created, so the delays are worked out once when the topology is built rather
+ than on every carrier sense.  Positions are whole meters from the center of the segment, so the delay only depends on
+ how many meters apart two nodes are: it's looked up by that from a table as long as the segment, and the table and the
+ nodes' positions grow linearly with the number of nodes.
+*/
+public class PropagationTable {
+  /**
+   The speed of light in copper, in meters per second
+  */
+  static final int SPEED_OF_LIGHT_IN_COPPER = 210000000;
+  
+  /**
+   Each node's distance from the center of the segment, by id from the first node's, and the delay for every number of
+   meters two nodes can be apart
+  */
+  private int[] distances;
+  private int[] delays;
+  /**
+   Id of the first node, the ids of the nodes on a segment are consecutive from there
+  */
+  private int first_id = 0;
+  private int medium_speed;
+  
+  /**
+   @param nodes The nodes on the segment, in order of id
+   @param medium_speed The speed of the medium in bits per second, one bit is one tick of the simulation
+  */
+  public PropagationTable(List<Node> nodes, int medium_speed) {
+    int count = nodes.size();
+    int nearest = 0, furthest = 0;
+    
+    this.medium_speed = medium_speed;
+    this.distances = new int[count];
+    
+    if (count > 0) {
+      this.first_id = nodes.get(0).getId();
+      nearest = furthest = nodes.get(0).getDistance();
+    }
+    
+    for (int i = 0; i < count; i++) {
+      this.distances[i] = nodes.get(i).getDistance();
+      nearest = Math.min(nearest, this.distances[i]);
+      furthest = Math.max(furthest, this.distances[i]);
+    }
+    
+    this.delays = new int[furthest - nearest + 1];
+    
+    for (int meters = 0; meters < this.delays.length; meters++) {
+      this.delays[meters] = ticksFor(meters, medium_speed);
+    }
+  }
+  
+  /**
+   @return The propagation delay in bits between the nodes with the given ids
+  */
+  public int delay(int a, int b) {
+    return this.delays[Math.abs(this.distances[a - this.first_id] - this.distances[b - this.first_id])];
+  }
+  
+  /**
+   @return The speed of the medium in bits per second, which is how many ticks there are in a second
+  */
+  public int getMediumSpeed() {
+    return this.medium_speed;
+  }
+  
+  /**
+   A signal is sensed the tick after it arrives, so the last a sender can hear of a collision is twice the delay to the
+   other sender and a tick after it started.  That has to be before a frame of the slot time has been sent
+   
+   @return The furthest apart in meters two nodes can be for both to hear their collision while they're still sending
+  */
+  static int longestSpan(int medium_speed, int slot_time) {
+    int longest_delay = (slot_time - 2) / 2;
+    int meters = (int)((double)longest_delay / medium_speed * SPEED_OF_LIGHT_IN_COPPER);
+    
+    while (meters > 0 && ticksFor(meters, medium_speed) > longest_delay) {
+      meters--;
+    }
+    
+    return meters;
+  }
+  
+  /**
+   Work out the delay over the given distance between two nodes.  Distances are positive to the right of the center
+   of the segment and negative to the left, so the distance between two nodes is always the difference.
+   
+   @return The distance in bits, rounded up
+  */
+  private static int ticksFor(int distance_in_meters, int medium_speed) {
+    return (int)Math.ceil((((double)distance_in_meters / SPEED_OF_LIGHT_IN_COPPER) / ((double)1 / medium_speed)));
+  }
+}
@@ -0,0 +1,200 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.*;
+
+/**
+ Results of earlier simulations kept on disk, so running exactly the same scenario again (same attributes, same seed
+ and same build of the simulator) gives back the results straight away instead of simulating it all over again.
+ 
+ Each result is a file named by the SHA-256 of the scenario's canonical description and the hash of the simulator's
+ own code, so rebuilding the simulator with any change misses every earlier result.  Reading a result marks it as used,
+ and once the results add up to more than the size limit the least recently used ones are deleted.
+ 
+ Results are written to a temporary file and moved into place, so several runs (or the tasks of a sweep) can share a
+ cache without ever reading half a result.
+*/
+public class ResultCache {
+  static final String SUFFIX = ".result";
+  
+  /**
+   The hash of the simulator's code, worked out the first time it's needed
+  */
+  private static String code_version = null;
+  
+  private Path directory;
+  private long max_bytes;
+  
+  /**
+   @param directory Where to keep the results, created if it isn't there
+   @param max_bytes How big the results can get altogether before the least recently used are deleted
+  */
+  public ResultCache(String directory, long max_bytes) throws IOException {
+    this.directory = Paths.get(directory);
+    this.max_bytes = max_bytes;
+    
+    Files.createDirectories(this.directory);
+  }
+  
+  /**
+   @return Where the results are kept unless told otherwise
+  */
+  static String defaultDirectory() {
+    return Paths.get(System.getProperty("user.home"), ".cache", "cs158a-simulator").toString();
+  }
+  
+  /**
+   @param scenario A canonical description of everything that goes into the result
+   @return The key the result is kept under
+  */
+  public static String key(String scenario) {
+    return sha256((scenario + "\ncode=" + codeVersion()).getBytes(StandardCharsets.UTF_8));
+  }
+  
+  /**
+   @return The result kept under the key, or null if there isn't one
+  */
+  public synchronized String get(String key) {
+    Path file = this.directory.resolve(key + SUFFIX);
+    
+    try {
+      String result = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      
+      return result;
+    } catch (IOException e) {
+      /**
+       Not there, or deleted by another run since, either way it's a miss
+      */
+      return null;
+    }
+  }
+  
+  /**
+   Keep a result under the key, then delete the least recently used results until they fit in the size limit again.
+   A cache that can't be written to only costs the next run the time to simulate again, so failures are ignored
+  */
+  public synchronized void put(String key, String result) {
+    try {
+      Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+      
+      Files.write(temporary, result.getBytes(StandardCharsets.UTF_8));
+      Files.move(temporary, this.directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      
+      this.evict();
+    } catch (IOException e) {
+      System.err.println("Unable to cache the results in " + this.directory + ": " + e);
+    }
+  }
+  
+  /**
+   Delete the least recently used results until the rest fit in the size limit
+  */
+  private void evict() throws IOException {
+    final HashMap<Path, Long> used = new HashMap<Path, Long>();
+    List<Path> results = new ArrayList<Path>();
+    long total = 0;
+    
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+      for (Path file : files) {
+        try {
+          used.put(file, Files.getLastModifiedTime(file).toMillis());
+          total += Files.size(file);
+          results.add(file);
+        } catch (NoSuchFileException e) {
+          // deleted by another run while we were looking
+        }
+      }
+    }
+    
+    if (total <= this.max_bytes) {
+      return;
+    }
+    
+    results.sort(new Comparator<Path>() {
+      public int compare(Path a, Path b) {
+        return Long.compare(used.get(a), used.get(b));
+      }
+    });
+    
+    for (Path file : results) {
+      if (total <= this.max_bytes) {
+        break;
+      }
+      
+      try {
+        total -= Files.size(file);
+        Files.delete(file);
+      } catch (NoSuchFileException e) {
+        // deleted by another run already
+      }
+    }
+  }
+  
+  /**
+   @return The SHA-256 of the simulator's classes, the jar they were loaded from or every class file in their directory
+  */
+  static synchronized String codeVersion() {
+    if (code_version == null) {
+      try {
+        Path code = Paths.get(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        
+        if (Files.isDirectory(code)) {
+          List<Path> classes = new ArrayList<Path>();
+          
+          findClasses(code, classes);
+          Collections.sort(classes);
+          
+          for (Path file : classes) {
+            digest.update(code.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+          }
+        } else {
+          digest.update(Files.readAllBytes(code));
+        }
+        
+        code_version = hex(digest.digest());
+      } catch (Exception e) {
+        throw new IllegalStateException("Unable to hash the simulator's code for the result cache", e);
+      }
+    }
+    
+    return code_version;
+  }
+  
+  private static void findClasses(Path directory, List<Path> classes) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        if (Files.isDirectory(file)) {
+          findClasses(file, classes);
+        } else if (file.toString().endsWith(".class")) {
+          classes.add(file);
+        }
+      }
+    }
+  }
+  
+  private static String sha256(byte[] bytes) {
+    try {
+      return hex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  private static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+    
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    
+    return hex.toString();
+  }
+}
@@ -0,0 +1,45 @@
+package ethernet;
+
+/**
+ What a simulation run on behalf of another engine tells it as it goes, and asks it for.  The optimistic engine's
+ workers (see TimeWarpWorker) only run some of the stations on the bus, and have to be able to put them back.
+ 
+ A simulation on its own has no hooks.
+*/
+public interface SimulationHooks {
+  /**
+   @return The scheduler to queue the simulation's pending events in, given the one it would have used
+  */
+  public EventScheduler scheduler(EventScheduler events);
+  
+  /**
+   @return Whether the simulation runs the given station, the others are only there for their signals on the bus
+  */
+  public boolean runs(Node station);
+  
+  /**
+   The given station's state, traffic source or transmit queue is about to change
+  */
+  public void changing(Node station);
+  
+  /**
+   The given station has started sending a frame that takes the given number of ticks
+  */
+  public void started(Node station, long tick, long duration);
+  
+  /**
+   @return Whether the hooks count the delivered frame towards the statistics themselves, rather than the simulation
+           counting it straight away
+  */
+  public boolean delivered(Event completed);
+  
+  /**
+   @return The tick the next signal from a station the simulation doesn't run starts, Long.MAX_VALUE if none will
+  */
+  public long nextSignalAt();
+  
+  /**
+   @return The next signal from a station the simulation doesn't run if it starts by the given tick, null otherwise
+  */
+  public TimeWarpEngine.Signal takeSignal(long tick);
+}
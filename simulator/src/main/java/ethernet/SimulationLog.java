@@ -0,0 +1,205 @@
+package ethernet;
+
+import java.io.*;
+
+/**
+ Log of what happens during a simulation, kept off of the simulation's own thread.
+ 
+ Messages below the configured level are dropped before anything is built, callers check isEnabled() first so they
+ don't even format them.  Enabled messages go into a ring buffer that a background thread drains in batches to the
+ output, so a verbose run isn't held up writing to the console one line at a time.  When the buffer fills up the
+ simulation waits for it to drain rather than losing messages.
+*/
+public class SimulationLog {
+  public enum Level { OFF, ERROR, WARN, INFO, DEBUG, TRACE }
+  
+  private static final int CAPACITY = 8192;
+  
+  private final Level level;
+  private final Writer out;
+  /**
+   Whether the output is ours to close, we leave stdout open
+  */
+  private final boolean owned;
+  
+  /**
+   Messages waiting to be written, guarded by the ring itself.  head is the next one to write, tail the next free slot
+  */
+  private final String[] ring = new String[CAPACITY];
+  private long head = 0, tail = 0;
+  private boolean closed = false;
+  /**
+   Started with the first message, so a run that logs nothing never starts it
+  */
+  private Thread drainer = null;
+  
+  /**
+   @param level The most detailed level of message to log
+   @param file Where to write the log, or null for stdout
+  */
+  public SimulationLog(Level level, String file) {
+    this.level = level;
+    
+    try {
+      if (file != null && level != Level.OFF) {
+        this.out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        this.owned = true;
+      } else {
+        this.out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        this.owned = false;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to open log file " + file, e);
+    }
+  }
+  
+  /**
+   @return The level with the given name, in any case
+  */
+  public static Level parseLevel(String name) {
+    try {
+      return Level.valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown log level: " + name);
+    }
+  }
+  
+  public boolean isEnabled(Level level) {
+    return (level.ordinal() <= this.level.ordinal() && this.level != Level.OFF);
+  }
+  
+  public void warn(String message) {
+    this.log(Level.WARN, message);
+  }
+  
+  public void info(String message) {
+    this.log(Level.INFO, message);
+  }
+  
+  public void debug(String message) {
+    this.log(Level.DEBUG, message);
+  }
+  
+  public void log(Level level, String message) {
+    if (!this.isEnabled(level)) {
+      return;
+    }
+    
+    synchronized (this.ring) {
+      if (this.drainer == null) {
+        this.drainer = new Thread(new Runnable() {
+          public void run() {
+            drain();
+          }
+        }, "simulation-log");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+      }
+      
+      while (this.tail - this.head == CAPACITY) {
+        this.await();
+      }
+      
+      this.ring[(int)(this.tail++ % CAPACITY)] = message;
+      this.ring.notifyAll();
+    }
+  }
+  
+  /**
+   Wait until everything logged so far has been written out
+  */
+  public void flush() {
+    synchronized (this.ring) {
+      long written = this.tail;
+      
+      while (this.head < written && this.drainer != null) {
+        this.await();
+      }
+    }
+  }
+  
+  /**
+   Write out everything logged so far and stop the background thread
+  */
+  public void close() {
+    this.flush();
+    
+    synchronized (this.ring) {
+      this.closed = true;
+      this.ring.notifyAll();
+    }
+    
+    try {
+      if (this.drainer != null) {
+        this.drainer.join();
+      }
+      
+      if (this.owned) {
+        this.out.close();
+      } else {
+        this.out.flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      System.err.println("Unable to write the simulation log: " + e);
+    }
+  }
+  
+  /**
+   Background thread, takes whatever has been logged in one go and writes it out until we're closed
+  */
+  private void drain() {
+    String[] batch = new String[CAPACITY];
+    
+    while (true) {
+      int count = 0;
+      long first;
+      
+      synchronized (this.ring) {
+        while (this.head == this.tail && !this.closed) {
+          this.await();
+        }
+        
+        if (this.head == this.tail) {
+          return;
+        }
+        
+        first = this.head;
+        for (long i = this.head; i < this.tail; i++) {
+          batch[count++] = this.ring[(int)(i % CAPACITY)];
+          this.ring[(int)(i % CAPACITY)] = null;
+        }
+      }
+      
+      try {
+        for (int i = 0; i < count; i++) {
+          this.out.write(batch[i]);
+          this.out.write('\n');
+          batch[i] = null;
+        }
+        
+        this.out.flush();
+      } catch (IOException e) {
+        System.err.println("Unable to write the simulation log: " + e);
+      }
+      
+      /**
+       Only mark the batch written once it's actually out, so flush() can rely on it
+      */
+      synchronized (this.ring) {
+        this.head = first + count;
+        this.ring.notifyAll();
+      }
+    }
+  }
+  
+  private void await() {
+    try {
+      this.ring.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting on the simulation log", e);
+    }
+  }
+}
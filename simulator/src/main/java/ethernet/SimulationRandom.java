@@ -0,0 +1,104 @@
+package ethernet;
+
+/**
+ The SplitMix64 generator behind java.util.SplittableRandom, giving exactly the same numbers for the same seed, but
+ with its state out in the open so a simulation can be checkpointed and carry on where it left off.
+ 
+ Only the operations the simulation uses are here.
+*/
+public class SimulationRandom {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  
+  private long seed;
+  private final long gamma;
+  
+  public SimulationRandom(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+  
+  /**
+   Pick up a generator from its state, as given by getSeed() and getGamma()
+  */
+  public SimulationRandom(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+  
+  /**
+   @return A new generator whose numbers don't overlap with this one's, advancing this one
+  */
+  public SimulationRandom split() {
+    return new SimulationRandom(this.nextLong(), mixGamma(this.nextSeed()));
+  }
+  
+  public long nextLong() {
+    return mix64(this.nextSeed());
+  }
+  
+  public int nextInt() {
+    return mix32(this.nextSeed());
+  }
+  
+  /**
+   @return A number from 0 (inclusive) up to the bound (exclusive)
+  */
+  public int nextInt(int bound) {
+    if (bound <= 0) {
+      throw new IllegalArgumentException("bound must be positive");
+    }
+    
+    int r = this.nextInt();
+    int m = bound - 1;
+    
+    if ((bound & m) == 0) {
+      r &= m;
+    } else {
+      /**
+       Reject the values that would make the lower numbers more likely
+      */
+      for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = this.nextInt() >>> 1);
+    }
+    
+    return r;
+  }
+  
+  public boolean nextBoolean() {
+    return this.nextInt() < 0;
+  }
+  
+  public long getSeed() {
+    return this.seed;
+  }
+  
+  public long getGamma() {
+    return this.gamma;
+  }
+  
+  private long nextSeed() {
+    return (this.seed += this.gamma);
+  }
+  
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    
+    return z ^ (z >>> 31);
+  }
+  
+  private static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    
+    return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+  
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    
+    /**
+     Gammas with too few bit transitions give poor sequences
+    */
+    return (Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z);
+  }
+}
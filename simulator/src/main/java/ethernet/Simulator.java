@@ -0,0 +1,2227 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+
+/**
+  Time slice = 1 bit
+ 1 bit / 10Mbps = 95.3674316 nano seconds (time "width" of a bit)
+ speed of light in copper: c(copper) = 2.1 x 10^8 m/s
+ Time to travel across the whole lan: 500 meters / c(copper) = 2.38095 x 10^-5 seconds = 23809.5 nanoseconds
+ 
+ We might not notice a frame on the wire for up to 512 bits (48.828125 microseconds) and cause a collison
+ 
+ Need to take into account the distance for determing how long it takes to transmit
+*/
+
+/**
+ Distance wise we could probably just consider the length of the entire segment and use that to determine the time to spend data to another host.
+ 
+ We probably don't need to worry about the distances between each node.
+ If we do, define the disance from the "center" of the segment.  Negative distances being to the left of the center, and positive distances being to the right of the center
+ 
+*/
+
+public class Simulator {
+  /**
+   Network events that have yet to be processed.  With the bus collision model these are the frames that haven't
+   arrived at their nodes' transmit queues yet
+  */
+  private EventScheduler events;
+  /**
+   Events currently on the wire (frames still in transit)
+  */
+  ArrayList<Event> onWireEvents = new ArrayList<Event>();
+  /**
+   With the "bus" collision model, the signals on the wire, the nodes that want the medium in order of when they want
+   it (IDLE with a frame queued, or in BACKOFF) and the nodes DEFERRING until they hear it go quiet
+  */
+  private Bus bus;
+  /**
+   With the "slotted" collision model, the medium a slot at a time.  The nodes want it from the ready set and defer as
+   they do on the bus
+  */
+  private SlottedMedium slots;
+  private PriorityQueue<Node> ready = new PriorityQueue<Node>(READY_ORDER);
+  private ArrayList<Node> deferring = new ArrayList<Node>();
+  private long ready_sequence = 0;
+  /**
+   The list of completed (transmitted) events, only kept when KEEP_COMPLETED_EVENTS is set since the statistics
+   are accumulated as each frame leaves the wire
+  */
+  private ArrayList<Event> completedEvents = new ArrayList<Event>();
+  /**
+   Per source -> destination totals of the delivered frames
+  */
+  private StatisticsAccumulator accumulator;
+  /**
+   Propagation delay in bits between every pair of nodes
+  */
+  private PropagationTable propagation;
+  /**
+   The nodes between which we'll be sending our traffic
+  */
+  ArrayList<Node> nodes = new ArrayList<Node>();
+  /**
+   Variables for metrics
+  */
+  private long initial_frames = 0, dropped_frames = 0, retried_frames = 0;
+  private long transmissions = 0, collisions = 0, delivered_frames = 0;
+  
+  /**
+   The speed of the medium in bits per second, one tick of the simulation is the time it takes to send a bit.  Every
+   node's interface runs at this speed
+  */
+  static final int DEFAULT_MEDIUM_SPEED = 10000000;
+  int MEDIUM_SPEED = DEFAULT_MEDIUM_SPEED;
+  /**
+   The slot time in bits, 512 for 10 and 100Mbps and 4096 for half duplex gigabit (carrier extension), 0 to go by the
+   speed of the medium
+  */
+  int SLOT_TIME = 0;
+  /**
+   Make bits into Megabits
+  */
+  final int BIT_FACTOR = 1000000;
+  /**
+   This represents the delay we need to be sending data at 1.5Mbps
+  */
+  final int DEFAULT_INTER_FRAME_DELAY = 22135;
+  int INTER_FRAME_DELAY = 0;
+  /**
+   How many nodes we want to simulate for
+  */
+  final int DEFAULT_NODES = 8;
+  int NODES = 0;
+  /**
+   How many packets do we want each host to send?
+  */
+  final int DEFAULT_PACKETS_EACH = 1280;
+  int PACKETS_EACH = 0;
+  
+  /**
+   How many simulated seconds to stop sending new frames after, 0 to keep going until every node has sent PACKETS_EACH
+   packets.  With both set, whichever comes first
+  */
+  long DURATION = 0;
+  
+  /**
+   Captured traffic to replay in place of the synthetic traffic (see WorkloadReplay), null for synthetic traffic
+  */
+  String WORKLOAD_FILE = null;
+  private WorkloadReplay workload;
+  
+  /**
+   How big should the payload in the frames be? In bytes
+  */
+  final int DEFAULT_PACKET_SIZE = 512;
+  int PACKET_SIZE = DEFAULT_PACKET_SIZE;
+  
+  /**
+   Which event scheduler to queue pending events in, "heap", "wheel" or "offheap"
+  */
+  final String DEFAULT_SCHEDULER = "heap";
+  String SCHEDULER = DEFAULT_SCHEDULER;
+  
+  /**
+   How collisions are worked out, "bus" to follow each signal along the wire (see Bus), "slotted" to only look at the
+   medium once a contention slot for a much faster approximation of the bus (see SlottedMedium) or "simple" for the
+   original model where any two frames on the wire at once collide straight away
+  */
+  final String DEFAULT_COLLISIONS = "bus";
+  String COLLISIONS = DEFAULT_COLLISIONS;
+  
+  /**
+   Whether to hold on to every completed event after its statistics have been accumulated
+  */
+  boolean KEEP_COMPLETED_EVENTS = false;
+  
+  /**
+   For the "offheap" scheduler, how many bytes of memory outside the heap to use before spilling events to disk, and
+   where to spill them
+  */
+  final long DEFAULT_OFFHEAP_MEMORY = 256L << 20;
+  long OFFHEAP_MEMORY = DEFAULT_OFFHEAP_MEMORY;
+  String SPILL_DIRECTORY = System.getProperty("java.io.tmpdir");
+  
+  /**
+   How much detail to log about what happens while setting up and running, and where to log it (null for stdout).
+   Each retried frame is logged at DEBUG, each dropped frame and each node's setup at INFO
+  */
+  SimulationLog.Level LOG_LEVEL = SimulationLog.Level.INFO;
+  String LOG_FILE = null;
+  private SimulationLog log;
+  
+  /**
+   Where to record a binary trace of every transmit, collision, backoff, delivery and drop, null for no trace
+  */
+  String TRACE_FILE = null;
+  private TraceWriter trace;
+  
+  /**
+   Where to stream the throughput, collisions and delay of each window of simulated time as CSV, null for none, and how
+   many milliseconds each window is
+  */
+  String TIMESERIES_FILE = null;
+  double TIMESERIES_WINDOW = 1.0;
+  private TimeSeriesRecorder series;
+  
+  /**
+   Whether to expose the live counters of the run over JMX (see SimulatorMonitor), and how many steps to take between
+   publishing them
+  */
+  boolean JMX = false;
+  final int MONITOR_INTERVAL = 4096;
+  private SimulatorMonitor monitor;
+  private int steps = 0;
+  
+  /**
+   Seed for every random choice in the simulation, running again with the same seed and attributes replays the run exactly
+  */
+  long SEED = new SplittableRandom().nextLong();
+  /**
+   The simulation's source of randomness, seeded from SEED.  Each node splits its own stream off of it
+  */
+  private SimulationRandom random;
+  
+  /**
+   Where to checkpoint the whole state of the simulation to, and how many simulated seconds apart.  A checkpoint can be
+   resumed from (as many times as wanted) to carry on exactly as the original run did, or with FORK_SEED set, to carry
+   on with fresh randomness for every node
+  */
+  String CHECKPOINT_FILE = null;
+  double CHECKPOINT_EVERY = 0;
+  String RESUME_FILE = null;
+  Long FORK_SEED = null;
+  
+  /**
+   Where to keep the results of earlier runs and how many megabytes of them to keep (see ResultCache), so the same
+   scenario with the same seed isn't simulated twice.  NO_CACHE always simulates and leaves the cache alone
+  */
+  String CACHE_DIRECTORY = ResultCache.defaultDirectory();
+  long CACHE_SIZE = 64;
+  boolean NO_CACHE = false;
+  
+  static final long CHECKPOINT_MAGIC = 0x4353313538434b50L; // "CS158CKP"
+  static final int CHECKPOINT_VERSION = 7;
+  
+  /**
+   Nodes in order of the tick they want the medium at, then the order they became ready in
+  */
+  private static final Comparator<Node> READY_ORDER = new Comparator<Node>() {
+    public int compare(Node a, Node b) {
+      int order = Long.compare(a.getReadyAt(), b.getReadyAt());
+      
+      return (order != 0 ? order : Long.compare(a.getReadyOrder(), b.getReadyOrder()));
+    }
+  };
+  
+  /**
+   How many ticks the last run took, for the summaries of parameter sweeps
+  */
+  private long elapsed_ticks = 0;
+  
+  /**
+   The next tick to be processed
+  */
+  private long timer = 0;
+  
+  /**
+   How many ticks to delay for each slot of the backoff algorithm, 0 to go by the slot time.  At 10Mbps it's always
+   been 537 ticks, which is kept so runs can be compared with earlier ones
+  */
+  int RETRY_DELAY = 0;
+  
+  /**
+   When the segment is part of a bridged network (see BridgedNetwork), which segment it is, the id its first node gets
+   (ids are unique across the whole network) and whether it has a bridge port.  Frames to nodes on other segments are
+   sent to the bridge port, and once they've crossed the wire to it they wait in forwarded to be carried across
+  */
+  int SEGMENT = 0;
+  int FIRST_NODE_ID = 0;
+  boolean BRIDGED = false;
+  private Node bridge = null;
+  private ArrayList<Event> forwarded = new ArrayList<Event>();
+  
+  /**
+   How many threads to simulate the segment on with the optimistic engine (see TimeWarpEngine), 0 to simulate it
+   sequentially, and how many ticks each of its windows is (0 for the engine's default)
+  */
+  int WORKERS = 0;
+  long WINDOW = 0;
+  
+  /**
+   What this simulation tells the engine it's run for, null when it runs on its own
+  */
+  private SimulationHooks hooks = null;
+  
+  public static void main(String[] args) {
+    System.out.println("802.3 Ethernet Network Simulator");
+    
+    Simulator sim = new Simulator();
+    
+    /**
+     Options that aren't worth prompting for are given on the command line
+    */
+    for (String arg : args) {
+      if (arg.startsWith("--scheduler=")) {
+        sim.SCHEDULER = arg.substring("--scheduler=".length());
+      } else if (arg.startsWith("--collisions=")) {
+        sim.COLLISIONS = arg.substring("--collisions=".length());
+      } else if (arg.equals("--keep-completed-events")) {
+        sim.KEEP_COMPLETED_EVENTS = true;
+      } else if (arg.startsWith("--medium-speed=")) {
+        sim.MEDIUM_SPEED = (int)(Double.parseDouble(arg.substring("--medium-speed=".length())) * sim.BIT_FACTOR);
+      } else if (arg.startsWith("--slot-time=")) {
+        sim.SLOT_TIME = Integer.parseInt(arg.substring("--slot-time=".length()));
+      } else if (arg.startsWith("--retry-delay=")) {
+        sim.RETRY_DELAY = Integer.parseInt(arg.substring("--retry-delay=".length()));
+      } else if (arg.startsWith("--offheap-memory=")) {
+        sim.OFFHEAP_MEMORY = Long.parseLong(arg.substring("--offheap-memory=".length())) << 20;
+      } else if (arg.startsWith("--spill-directory=")) {
+        sim.SPILL_DIRECTORY = arg.substring("--spill-directory=".length());
+      } else if (arg.startsWith("--duration=")) {
+        sim.DURATION = Long.parseLong(arg.substring("--duration=".length()));
+      } else if (arg.startsWith("--workload=")) {
+        sim.WORKLOAD_FILE = arg.substring("--workload=".length());
+      } else if (arg.startsWith("--log-level=")) {
+        sim.LOG_LEVEL = SimulationLog.parseLevel(arg.substring("--log-level=".length()));
+      } else if (arg.startsWith("--log-file=")) {
+        sim.LOG_FILE = arg.substring("--log-file=".length());
+      } else if (arg.startsWith("--trace=")) {
+        sim.TRACE_FILE = arg.substring("--trace=".length());
+      } else if (arg.startsWith("--timeseries=")) {
+        sim.TIMESERIES_FILE = arg.substring("--timeseries=".length());
+      } else if (arg.startsWith("--timeseries-window=")) {
+        sim.TIMESERIES_WINDOW = Double.parseDouble(arg.substring("--timeseries-window=".length()));
+      } else if (arg.startsWith("--seed=")) {
+        sim.SEED = Long.parseLong(arg.substring("--seed=".length()));
+      } else if (arg.equals("--jmx")) {
+        sim.JMX = true;
+      } else if (arg.startsWith("--checkpoint=")) {
+        sim.CHECKPOINT_FILE = arg.substring("--checkpoint=".length());
+      } else if (arg.startsWith("--checkpoint-every=")) {
+        sim.CHECKPOINT_EVERY = Double.parseDouble(arg.substring("--checkpoint-every=".length()));
+      } else if (arg.startsWith("--resume=")) {
+        sim.RESUME_FILE = arg.substring("--resume=".length());
+      } else if (arg.startsWith("--fork-seed=")) {
+        sim.FORK_SEED = Long.parseLong(arg.substring("--fork-seed=".length()));
+      } else if (arg.equals("--no-cache")) {
+        sim.NO_CACHE = true;
+      } else if (arg.startsWith("--cache-dir=")) {
+        sim.CACHE_DIRECTORY = arg.substring("--cache-dir=".length());
+      } else if (arg.startsWith("--cache-size=")) {
+        sim.CACHE_SIZE = Long.parseLong(arg.substring("--cache-size=".length()));
+      } else if (arg.startsWith("--workers=")) {
+        sim.WORKERS = Integer.parseInt(arg.substring("--workers=".length()));
+      } else if (arg.startsWith("--window=")) {
+        sim.WINDOW = Long.parseLong(arg.substring("--window=".length()));
+      } else {
+        System.err.println("Unknown option: " + arg);
+        System.exit(-1);
+      }
+    }
+    
+    /**
+     Configure the simulator, should eventually prompt for:
+     * How many nodes we have
+     * How much traffic to send between nodes
+     * How fast the traffic should transmit
+    */
+    if (sim.RESUME_FILE == null) {
+      sim.configure();
+    }
+    
+    ResultCache cache = null;
+    String key = null;
+    TimeWarpEngine engine = null;
+    
+    try {
+      if (sim.isCacheable()) {
+        cache = new ResultCache(sim.CACHE_DIRECTORY, sim.CACHE_SIZE << 20);
+        key = ResultCache.key(sim.scenario());
+        
+        String cached = cache.get(key);
+        
+        if (cached != null) {
+          System.out.println("Using the cached results of seed " + sim.SEED + " (run again with --no-cache to simulate it)");
+          System.out.print(cached);
+          return;
+        }
+      }
+      
+      if (sim.RESUME_FILE != null) {
+        sim.restore(new File(sim.RESUME_FILE));
+      } else if (sim.WORKERS > 0) {
+        engine = new TimeWarpEngine(sim);
+        engine.setup();
+      } else {
+        sim.setup();
+      }
+    } catch (IllegalArgumentException | IOException | UncheckedIOException e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+    
+    /**
+      Actually run the simulator, this is where we should collect statisitics
+    */
+    if (engine != null) {
+      engine.run();
+    } else {
+      sim.run();
+    }
+    /**
+      Here we should analyze the statistics (collisions, transmit speed, etc)
+      sim.metrics();
+    */
+    String results = sim.report();
+    System.out.print(results);
+    
+    if (cache != null) {
+      cache.put(key, results);
+    }
+  }
+  
+  /**
+   Prompt for the attributes of the network to simulate
+  */
+  void configure() {
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+      
+      try {
+        System.out.print("How many nodes? ");
+        NODES = Integer.parseInt(in.readLine());
+        System.out.println("Configuring for " + NODES + " nodes");
+      } catch (NumberFormatException e) {
+        System.out.println("You didn't enter anything, defaulting to " + DEFAULT_NODES + " nodes.");
+        NODES = DEFAULT_NODES;
+      }
+      
+      /**
+       A replayed workload brings its own traffic
+      */
+      if (WORKLOAD_FILE != null) {
+        return;
+      }
+      
+      try {
+        System.out.print("How many packets per node (0 for no limit)? ");
+        PACKETS_EACH = Integer.parseInt(in.readLine());
+        System.out.println("Configuring for " + PACKETS_EACH + " packets per node");
+      } catch (NumberFormatException e) {
+        System.out.println("You didn't enter anything, defaulting to " + DEFAULT_PACKETS_EACH + " packets per node");
+        PACKETS_EACH = DEFAULT_PACKETS_EACH;
+      }
+      
+      try {
+        System.out.print("How fast should nodes attempt to send their packets in Mbps? ");
+        double read = Double.parseDouble(in.readLine());
+        
+        INTER_FRAME_DELAY = this.interFrameDelay(read);
+        System.out.println("Configured throttling to induce a inter frame delay of " + INTER_FRAME_DELAY + " bits of idle time");
+      } catch (NumberFormatException e) {
+        System.out.println("You didn't enter a speed, defaulting to 1.5Mbps for an inter frame delay of 16,602 bits");
+        INTER_FRAME_DELAY = 16602;
+      }
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+  }
+  
+  /**
+   Work out how much idle time to leave between frames so each node sends at the given speed
+   
+   @param mbps The speed each node should attempt to send at, in Mbps
+   @return The inter frame delay in bits
+  */
+  int interFrameDelay(double mbps) {
+    return (int)(((
+                 ((double)MEDIUM_SPEED / (PACKET_SIZE * 8)) - ((mbps * (double)BIT_FACTOR) / (PACKET_SIZE * 8))) 
+                 /
+                 ((double)(mbps * (double)BIT_FACTOR) / (PACKET_SIZE * 8))) * (double)(PACKET_SIZE * 8));
+  }
+  
+  /**
+   Put every attribute back to its default and forget the last run, so the same simulator can run another scenario
+   (see SimulatorServer).  The lists keep the room they grew to
+  */
+  void reset() {
+    MEDIUM_SPEED = DEFAULT_MEDIUM_SPEED;
+    SLOT_TIME = 0;
+    RETRY_DELAY = 0;
+    INTER_FRAME_DELAY = 0;
+    NODES = 0;
+    PACKETS_EACH = 0;
+    DURATION = 0;
+    WORKLOAD_FILE = null;
+    PACKET_SIZE = DEFAULT_PACKET_SIZE;
+    SCHEDULER = DEFAULT_SCHEDULER;
+    COLLISIONS = DEFAULT_COLLISIONS;
+    KEEP_COMPLETED_EVENTS = false;
+    OFFHEAP_MEMORY = DEFAULT_OFFHEAP_MEMORY;
+    SPILL_DIRECTORY = System.getProperty("java.io.tmpdir");
+    LOG_LEVEL = SimulationLog.Level.INFO;
+    LOG_FILE = null;
+    TRACE_FILE = null;
+    TIMESERIES_FILE = null;
+    TIMESERIES_WINDOW = 1.0;
+    JMX = false;
+    SEED = new SplittableRandom().nextLong();
+    CHECKPOINT_FILE = null;
+    CHECKPOINT_EVERY = 0;
+    RESUME_FILE = null;
+    FORK_SEED = null;
+    CACHE_DIRECTORY = ResultCache.defaultDirectory();
+    CACHE_SIZE = 64;
+    NO_CACHE = false;
+    SEGMENT = 0;
+    FIRST_NODE_ID = 0;
+    BRIDGED = false;
+    WORKERS = 0;
+    WINDOW = 0;
+    
+    this.closeFiles();
+    this.events = null;
+    this.onWireEvents.clear();
+    this.bus = null;
+    this.slots = null;
+    this.ready.clear();
+    this.deferring.clear();
+    this.ready_sequence = 0;
+    this.completedEvents.clear();
+    this.accumulator = null;
+    this.propagation = null;
+    this.nodes.clear();
+    this.initial_frames = 0;
+    this.dropped_frames = 0;
+    this.retried_frames = 0;
+    this.transmissions = 0;
+    this.collisions = 0;
+    this.delivered_frames = 0;
+    this.monitor = null;
+    this.steps = 0;
+    this.random = null;
+    this.elapsed_ticks = 0;
+    this.timer = 0;
+    this.bridge = null;
+    this.forwarded.clear();
+    this.hooks = null;
+  }
+  
+  /**
+   Build the nodes and queue up the frames they'll send, according to the configured attributes
+  */
+  void setup() {
+    this.createNodes();
+    
+    if (WORKLOAD_FILE != null) {
+      this.startReplay();
+    } else {
+      this.chooseDestinations(this.getStations());
+      this.startTraffic();
+    }
+  }
+  
+  /**
+   Build the nodes of the segment, and its bridge port if it's bridged, with the delays between them
+  */
+  void createNodes() {
+    if (WORKLOAD_FILE == null && PACKETS_EACH <= 0 && DURATION <= 0) {
+      throw new IllegalArgumentException("Either the number of packets per node or the duration has to be limited");
+    }
+    
+    /**
+     Whatever of the slot time and the backoff delay wasn't given goes by the speed of the medium
+    */
+    RETRY_DELAY = this.retryDelay();
+    SLOT_TIME = this.slotTime();
+    
+    this.random = new SimulationRandom(SEED);
+    this.events = this.createScheduler(SCHEDULER);
+    this.log = new SimulationLog(LOG_LEVEL, LOG_FILE);
+    
+    if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+      this.log.info("Using random seed " + SEED + " (run again with --seed=" + SEED + " to replay this simulation)");
+    }
+    
+    this.registerMonitor();
+    
+    /**
+     Setup nodes for the simulation
+    */
+    for (int i = 0; i < NODES; i++) {
+      this.nodes.add(new Node(FIRST_NODE_ID + i, this.random));
+    }
+    
+    /**
+     The bridge port is the last node, it only ever sends frames that have come across from other segments
+    */
+    if (BRIDGED) {
+      this.bridge = new Node(FIRST_NODE_ID + NODES, this.random);
+      this.nodes.add(this.bridge);
+    }
+    
+    for (Node node : this.nodes) {
+      node.setSegment(SEGMENT);
+      node.setBandwidth(MEDIUM_SPEED);
+    }
+    
+    this.accumulator = new StatisticsAccumulator(NODES);
+    this.connectNodes();
+  }
+  
+  /**
+   Work out the delays between the nodes and hand them to each node
+  */
+  private void connectNodes() {
+    this.fitToSlotTime();
+    this.propagation = new PropagationTable(this.nodes, MEDIUM_SPEED);
+    
+    /**
+     Half duplex gigabit carries short frames on to the slot time
+    */
+    for (Node node : this.nodes) {
+      node.setPropagationTable(this.propagation);
+      node.setCarrierExtension(carrierExtension(MEDIUM_SPEED, SLOT_TIME));
+    }
+    
+    if (COLLISIONS.equals("bus")) {
+      this.bus = new Bus(this.nodes, this.propagation, MEDIUM_SPEED);
+    } else if (COLLISIONS.equals("slotted")) {
+      this.slots = new SlottedMedium(this.propagation, RETRY_DELAY);
+    } else if (!COLLISIONS.equals("simple")) {
+      throw new IllegalArgumentException("Unknown collision model: " + COLLISIONS);
+    }
+  }
+  
+  /**
+   Nodes are placed up to 249 meters either side of the center, which a signal crosses and comes back over within the
+   512 bit slot time at 10 and 100Mbps but not the 4096 bits of gigabit: a sender at one end could finish its frame
+   before it heard a collision with one at the other, and the frame would count as delivered.  So where the slot time
+   is too short for the segment, the nodes are moved in towards the center, keeping their order and spacing, until it
+   isn't
+  */
+  private void fitToSlotTime() {
+    int nearest = 0, furthest = 0;
+    
+    for (Node node : this.nodes) {
+      nearest = Math.min(nearest, node.getDistance());
+      furthest = Math.max(furthest, node.getDistance());
+    }
+    
+    int longest = PropagationTable.longestSpan(MEDIUM_SPEED, SLOT_TIME);
+    
+    if (furthest - nearest <= longest) {
+      return;
+    }
+    
+    /**
+     Rounding each position can put two nodes a meter further apart than scaling would, so scale to a meter less
+    */
+    double scale = (double)Math.max(longest - 1, 0) / (furthest - nearest);
+    
+    for (Node node : this.nodes) {
+      node.setDistance((int)Math.round(node.getDistance() * scale));
+    }
+    
+    this.log.info("Moved the nodes within " + longest + " meters of each other so collisions are heard within the " + SLOT_TIME + " bit slot time");
+  }
+  
+  /**
+   @return The slot time in bits, as given or for the speed of the medium
+  */
+  private int slotTime() {
+    return slotTime(MEDIUM_SPEED, SLOT_TIME);
+  }
+  
+  /**
+   @return The backoff delay in ticks, as given or by the slot time
+  */
+  private int retryDelay() {
+    return retryDelay(MEDIUM_SPEED, SLOT_TIME, RETRY_DELAY);
+  }
+  
+  /**
+   @return The fewest ticks a frame holds the medium for, the slot time at 1000Mbps and above and no minimum below
+  */
+  static long carrierExtension(int medium_speed, int slot_time) {
+    return (medium_speed >= 1000000000 ? slotTime(medium_speed, slot_time) : 0);
+  }
+  
+  /**
+   @param slot_time The slot time given, 0 to go by the speed of the medium
+  */
+  static int slotTime(int medium_speed, int slot_time) {
+    if (slot_time > 0) {
+      return slot_time;
+    }
+    
+    return (medium_speed >= 1000000000 ? 4096 : 512);
+  }
+  
+  /**
+   @param retry_delay The backoff delay given, 0 to go by the slot time
+  */
+  static int retryDelay(int medium_speed, int slot_time, int retry_delay) {
+    if (retry_delay > 0) {
+      return retry_delay;
+    }
+    
+    return (medium_speed == DEFAULT_MEDIUM_SPEED && slot_time <= 0 ? 537 : slotTime(medium_speed, slot_time));
+  }
+  
+  private void registerMonitor() {
+    if (JMX) {
+      try {
+        this.monitor = SimulatorMonitor.register(SEGMENT, MEDIUM_SPEED);
+      } catch (javax.management.JMException e) {
+        this.log.warn("Unable to register the JMX monitor, running without it: " + e);
+      }
+    }
+  }
+  
+  /**
+   Setup each node to randomly pick another node to send 10 seconds of traffic to at 1.5Mbps (one-way, think UDP stream)
+   
+   @param candidates The nodes to pick from, the stations of this segment or of every segment in a bridged network
+  */
+  void chooseDestinations(List<Node> candidates) {
+    for (Node source : this.getStations()) {
+      Node destination = null;
+      
+      while (destination == null || source == destination) {
+        destination = candidates.get(this.random.nextInt(candidates.size()));
+      }
+      
+      source.setDestinationNode(destination);
+      
+      if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+        this.log.info("Configuring node: " + source.getMacAddress() + " to transmit to: " + destination.getMacAddress());
+      }
+    }
+  }
+  
+  /**
+   Give each station a traffic source towards its destination, and queue up its first frame
+  */
+  void startTraffic() {
+    for (Node source : this.getStations()) {
+      if (!this.runs(source)) {
+        continue;
+      }
+      
+      Node destination = source.getDestinationNode();
+      
+      /**
+       Frames are generated as they're needed, so only the first one is queued up front.  Frames for other segments
+       are sent to the bridge port
+      */
+      source.setTrafficSource(new TrafficSource(source, (destination.getSegment() == SEGMENT ? destination : this.bridge), PACKET_SIZE, INTER_FRAME_DELAY, PACKETS_EACH, DURATION * MEDIUM_SPEED));
+      this.queueNextFrame(source);
+    }
+    
+    this.startRecording();
+  }
+  
+  /**
+   Start replaying the workload, frames are queued as they come due
+  */
+  private void startReplay() {
+    try {
+      this.workload = new WorkloadReplay(WORKLOAD_FILE, this.getStations(), MEDIUM_SPEED, (DURATION > 0 ? DURATION * MEDIUM_SPEED : Long.MAX_VALUE));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to replay workload " + WORKLOAD_FILE, e);
+    }
+    
+    if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+      this.log.info("Replaying workload " + WORKLOAD_FILE + " across " + NODES + " nodes");
+    }
+    
+    this.startRecording();
+  }
+  
+  /**
+   Queue every frame of the workload that's due by the given tick
+  */
+  private void queueReplay(long timer) {
+    try {
+      while (this.workload.nextTick() <= timer) {
+        this.events.add(this.workload.next());
+        this.initial_frames++;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read workload " + WORKLOAD_FILE, e);
+    }
+  }
+  
+  /**
+   Start the trace and the time series, if they've been asked for
+  */
+  private void startRecording() {
+    if (TRACE_FILE != null) {
+      try {
+        this.trace = new TraceWriter(TRACE_FILE, this.nodes, PACKET_SIZE, MEDIUM_SPEED, SEED);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to create trace file " + TRACE_FILE, e);
+      }
+    }
+    
+    if (TIMESERIES_FILE != null) {
+      try {
+        this.series = new TimeSeriesRecorder(TIMESERIES_FILE, this.nodes, Math.max(1, (long)(TIMESERIES_WINDOW * MEDIUM_SPEED / 1000)), this.timer, PACKET_SIZE, MEDIUM_SPEED);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to create time series file " + TIMESERIES_FILE, e);
+      }
+    }
+  }
+  
+  /**
+   Queue the next frame from a node's traffic source, if it has any left to send
+  */
+  private void queueNextFrame(Node node) {
+    Event event = (node.getTrafficSource() != null ? node.getTrafficSource().next() : null);
+    
+    if (event != null) {
+      this.events.add(event);
+      
+      /**
+       For metrics, count how many frames we've queued to send
+      */
+      this.initial_frames++;
+    }
+  }
+  
+  /**
+   Run the simulation process
+   
+   When events get executed, they should get popped off the events array list and pushed into onWireEvents
+   
+   After the time to transmit has been reached, the event should be popped off the onWireEvents array list (and can be discarded)
+  */
+  void run() {
+    if (CHECKPOINT_FILE != null && CHECKPOINT_EVERY > 0) {
+      long interval = Math.max(1, (long)(CHECKPOINT_EVERY * MEDIUM_SPEED));
+      long limit = (this.timer / interval + 1) * interval;
+      
+      /**
+       Stop at every multiple of the interval to take a checkpoint, a failed checkpoint shouldn't end the run
+      */
+      while (this.runUntil(limit)) {
+        try {
+          this.checkpoint(new File(CHECKPOINT_FILE));
+          
+          if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+            this.log.info("Checkpointed to " + CHECKPOINT_FILE + " at " + ((double)this.timer / MEDIUM_SPEED) + " seconds");
+          }
+        } catch (IOException e) {
+          this.log.warn("Unable to write the checkpoint: " + e);
+        }
+        
+        limit += interval;
+      }
+    } else {
+      this.runUntil(Long.MAX_VALUE);
+    }
+    
+    this.finish();
+  }
+  
+  /**
+   Process every tick before the given one, or until there's nothing left to do
+   
+   @param limit The first tick not to process, the simulation picks up from there the next time
+   @return Whether there are still frames queued or on the wire
+  */
+  boolean runUntil(long limit) {
+    while (this.busy() && this.timer < limit) {
+      if (this.workload != null) {
+        this.queueReplay(this.timer);
+      }
+      
+      if (this.bus != null) {
+        this.stepBus(this.timer);
+      } else if (this.slots != null) {
+        this.stepSlotted(this.timer);
+      } else {
+        this.step(this.timer);
+      }
+      
+      /**
+       We're done with this step, so jump the timer straight to the next tick where something can happen
+      */
+      this.timer = Math.min(this.nextActiveTick(this.timer), limit);
+      
+      if (this.monitor != null && ++this.steps % MONITOR_INTERVAL == 0) {
+        this.publish();
+      }
+    }
+    
+    if (this.monitor != null) {
+      this.publish();
+    }
+    
+    return this.busy();
+  }
+  
+  /**
+   @return Whether there are still frames to replay, queued, waiting to be sent or on the wire
+  */
+  private boolean busy() {
+    return (this.events.size() > 0 || this.onWireEvents.size() > 0 || this.ready.size() > 0 || this.deferring.size() > 0 || (this.bus != null && this.bus.hasPending()) ||
+            (this.slots != null && this.slots.isBusy()) || (this.hooks != null && this.hooks.nextSignalAt() != Long.MAX_VALUE) ||
+            (this.workload != null && this.workload.nextTick() != Long.MAX_VALUE));
+  }
+  
+  /**
+   Process a single tick: take finished frames off the wire, put the next frame on it if the medium is clear, and back
+   off every frame involved in a collision
+  */
+  private void step(long timer) {
+    /**
+     What event we're currently working with and just about to process if the carrier sense is clear
+    */
+    Event next = null;
+    /**
+     Check for expired on wire events
+    */
+    for (int i = 0; i < this.onWireEvents.size(); i++) {
+      if (this.onWireEvents.get(i).getFinishedSlot() <= timer) {
+        this.deliver(this.onWireEvents.get(i), timer, timer);
+        
+        /**
+         Remove it from the wire
+        */
+        this.onWireEvents.remove(i);
+        
+        i--; // have to reset the i back one to account for the fact we just deleted one
+      }
+    }
+    
+    /**
+      Pop the current event off the events queue and push it into the on wire queue
+    */
+    if (this.events.size() > 0) {
+      /**
+       We want to check if the medium is clear first, check that nothing has been in the onWireEvent queue more than 512 cycles (bits) - this will allow for collisions to occur
+       We also want to check the time for this event has come
+      */
+      next = this.events.peek();
+      if (this.mediumClear(next.getSource(), timer) && next.getTimeSlot() <= timer) {
+        this.events.poll();
+        this.transmit(next, timer);
+        this.onWireEvents.add(next);
+      }
+    }
+    
+    /**
+     If there's more than 1 events in the onWireEvents array list, we have a collision
+     
+     Check if the events are inside or outside of the 512 bit detection window
+     
+     Loop through each of the nodes, and see if one with a bit on the wire is within the time/distance to notice the other
+    */
+    if (this.onWireEvents.size() > 1) { // this isn't quite what it should be
+      this.collisions++;
+      
+      // in this case, we push all events back onto this.events at random intervals...Event will need to track the retries (the exponential backoff algorithm)
+
+      /**
+       We need to loop through each of the events on the wire, and if they're part of this collision, we need to increment
+       their retry counter and schedule them to run again in the future according to the backoff algorithm
+      */
+      for (Event event : this.onWireEvents) {
+        if (this.trace != null) {
+          this.trace.record(timer, TraceWriter.COLLISION, event, this.onWireEvents.size());
+        }
+        
+        if (this.series != null) {
+          this.series.collided(timer, event.getSource());
+        }
+        
+        this.backOff(event, timer);
+      }
+      /**
+       Reset the array list to be empty now, since all the colliding packets have been requeued
+      */
+      this.onWireEvents = new ArrayList<Event>();
+    }
+  }
+  
+  /**
+   Process a single tick on the physical bus: report the collisions senders have detected, deliver the frames that were
+   sent in full and back off the ones that were jammed, queue the frames that have arrived at their nodes, then start
+   sending from every node that wants the medium if it hears it idle.  Nodes that hear a carrier defer until it goes
+   quiet (1-persistent) and send straight away then.  Only the nodes that want the medium are looked at, however many
+   frames are queued behind them
+  */
+  private void stepBus(long timer) {
+    this.bus.expire(timer);
+    
+    for (Bus.Transmission transmission : this.bus.collisions(timer)) {
+      if (!this.runs(transmission.event.getSource())) {
+        continue;
+      }
+      
+      this.collisions++;
+      
+      if (this.trace != null) {
+        this.trace.record(timer, TraceWriter.COLLISION, transmission.event, this.bus.size());
+      }
+      
+      if (this.series != null) {
+        this.series.collided(timer, transmission.event.getSource());
+      }
+    }
+    
+    for (Bus.Transmission transmission : this.bus.ended(timer)) {
+      if (!this.runs(transmission.event.getSource())) {
+        continue;
+      }
+      
+      this.changing(transmission.event.getSource());
+      
+      if (transmission.collided()) {
+        this.backOff(transmission.event, timer);
+      } else {
+        /**
+         The frame has arrived once its last bit has reached the destination
+        */
+        this.deliver(transmission.event, timer, transmission.end + this.distanceBetweenNodes(transmission.event.getSource(), transmission.event.getDestination()));
+        this.nextFrame(transmission.event.getSource(), timer);
+      }
+    }
+    
+    while (this.events.size() > 0 && this.events.peek().getTimeSlot() <= timer) {
+      this.arrive(this.events.poll(), timer);
+    }
+    
+    boolean started = false;
+    
+    for (int i = 0; i < this.deferring.size(); i++) {
+      Node waiting = this.deferring.get(i);
+      
+      if (!this.bus.senses(waiting, timer)) {
+        this.deferring.remove(i);
+        this.send(waiting, timer);
+        started = true;
+        i--;
+      }
+    }
+    
+    while (this.ready.size() > 0 && this.ready.peek().getReadyAt() <= timer) {
+      Node next = this.ready.poll();
+      
+      if (this.bus.senses(next, timer)) {
+        this.changing(next);
+        next.setState(Node.MacState.DEFERRING);
+        this.deferring.add(next);
+      } else {
+        this.send(next, timer);
+        started = true;
+      }
+    }
+    
+    /**
+     The stations this simulation doesn't run that start this tick go on the bus alongside its own
+    */
+    for (TimeWarpEngine.Signal signal = this.takeSignal(timer); signal != null; signal = this.takeSignal(timer)) {
+      if (signal.start < timer) {
+        throw new IllegalStateException("Signal from node " + signal.source + " at tick " + signal.start + " arrived after tick " + timer);
+      }
+      
+      /**
+       Stands in for the other station's frame, only its sender matters on the bus
+      */
+      Node sender = this.node(signal.source);
+      
+      this.bus.transmit(new Event(sender, sender.getDestinationNode(), 0, 0, signal.start), signal.start, signal.duration);
+      started = true;
+    }
+    
+    if (started) {
+      this.bus.detectCollisions(timer);
+    }
+  }
+  
+  /**
+   Process a single slot of the slotted medium, or the end of whatever was on it: deliver the frame that was sent or
+   back off the ones that collided, queue the frames that have arrived at their nodes, then once the medium is quiet
+   resolve the slot.  Of the nodes that want the medium by the start of the slot, the first to want it (once it has
+   heard it go quiet) goes, along with any that wanted it before they could hear that one, the rest defer
+  */
+  private void stepSlotted(long timer) {
+    if (this.slots.isBusy() && this.slots.getEnd() <= timer) {
+      boolean collided = this.slots.collided();
+      
+      for (Event event : this.slots.finish()) {
+        if (collided) {
+          this.backOff(event, timer);
+        } else {
+          this.deliver(event, timer, timer + this.distanceBetweenNodes(event.getSource(), event.getDestination()));
+          this.nextFrame(event.getSource(), timer);
+        }
+      }
+    }
+    
+    while (this.events.size() > 0 && this.events.peek().getTimeSlot() <= timer) {
+      this.arrive(this.events.poll(), timer);
+    }
+    
+    if (this.slots.isBusy() || timer < this.slots.getQuietAt() ||
+        (this.deferring.size() == 0 && (this.ready.size() == 0 || this.slots.nextSlot(this.ready.peek().getReadyAt()) > timer))) {
+      return;
+    }
+    
+    ArrayList<Node> wanting = new ArrayList<Node>();
+    
+    while (this.ready.size() > 0 && this.ready.peek().getReadyAt() <= timer) {
+      wanting.add(this.ready.poll());
+    }
+    
+    /**
+     After a frame has got through, its sender is the first to hear the medium go quiet, so if it wants the medium
+     straight away again every node that was already deferring hears it in time and carries on deferring.  Otherwise
+     they all want it the moment they hear it go quiet
+    */
+    Node last = (this.slots.getSenders().size() == 1 ? this.slots.getSenders().get(0) : null);
+    boolean captured = (last != null && wanting.contains(last) && last.getReadyAt() <= this.slots.getQuietAt());
+    
+    if (!captured) {
+      wanting.addAll(this.deferring);
+      this.deferring.clear();
+    }
+    
+    long[] wanted_at = new long[wanting.size()];
+    int first = 0;
+    
+    for (int i = 0; i < wanting.size(); i++) {
+      wanted_at[i] = Math.max(wanting.get(i).getReadyAt(), this.slots.quietAt(wanting.get(i)));
+      
+      if (wanted_at[i] < wanted_at[first]) {
+        first = i;
+      }
+    }
+    
+    ArrayList<Event> contending = new ArrayList<Event>();
+    
+    for (int i = 0; i < wanting.size(); i++) {
+      Node next = wanting.get(i);
+      
+      if (this.slots.hears(next, wanted_at[i], wanting.get(first), wanted_at[first])) {
+        next.setState(Node.MacState.DEFERRING);
+        this.deferring.add(next);
+      } else {
+        next.setState(Node.MacState.TRANSMITTING);
+        contending.add(next.peekFrame());
+        this.transmit(next.peekFrame(), timer);
+      }
+    }
+    
+    this.slots.start(contending, timer);
+    
+    if (this.slots.collided()) {
+      for (Event event : contending) {
+        this.collisions++;
+        
+        if (this.trace != null) {
+          this.trace.record(timer, TraceWriter.COLLISION, event, contending.size());
+        }
+        
+        if (this.series != null) {
+          this.series.collided(timer, event.getSource());
+        }
+      }
+    }
+  }
+  
+  /**
+   @return Whether the nodes send from their own transmit queues, as they do on the bus and the slotted medium
+  */
+  private boolean nodeQueues() {
+    return (this.bus != null || this.slots != null);
+  }
+  
+  /**
+   Put a frame that has come due at the back of its node's transmit queue, the node wants the medium straight away if
+   it was idle with nothing to send
+  */
+  private void arrive(Event event, long timer) {
+    Node node = event.getSource();
+    
+    this.changing(node);
+    node.enqueue(event);
+    
+    if (node.getState() == Node.MacState.IDLE && node.getQueueLength() == 1) {
+      this.ready(node, timer, Node.MacState.IDLE);
+    }
+  }
+  
+  /**
+   Have the node want the medium at the given tick, either for a new frame (IDLE) or to retry one (BACKOFF)
+  */
+  private void ready(Node node, long ready_at, Node.MacState state) {
+    node.setState(state);
+    node.setReady(ready_at, this.ready_sequence++);
+    this.ready.add(node);
+  }
+  
+  /**
+   Start sending the frame at the head of the node's queue on the bus
+  */
+  private void send(Node node, long timer) {
+    Event next = node.peekFrame();
+    
+    this.changing(node);
+    node.setState(Node.MacState.TRANSMITTING);
+    this.transmit(next, timer);
+    this.bus.transmit(next, timer, node.ticksToSend(next.getPayloadSize()));
+    
+    if (this.hooks != null) {
+      this.hooks.started(node, timer, node.ticksToSend(next.getPayloadSize()));
+    }
+  }
+  
+  /**
+   The node is done with the frame at the head of its queue, sent or dropped, so it moves on to the next one.  Once the
+   queue has run dry the traffic source is asked for the next frame, which arrives when it's due
+  */
+  private void nextFrame(Node node, long timer) {
+    node.pollFrame();
+    node.setState(Node.MacState.IDLE);
+    
+    if (node.getQueueLength() > 0) {
+      this.ready(node, timer, Node.MacState.IDLE);
+    } else {
+      this.queueNextFrame(node);
+    }
+  }
+  
+  /**
+   Bookkeeping for a frame going on the wire
+  */
+  private void transmit(Event next, long timer) {
+    this.transmissions++;
+    
+    if (this.series != null) {
+      this.series.transmitted(timer, next.getSource());
+    }
+    
+    /**
+     The first time a frame is handed to the MAC, the node can generate the one after it.  On the bus the node only
+     asks for it once it's done with this one (see nextFrame)
+    */
+    if (!this.nodeQueues() && next.getRetries() == 0) {
+      this.queueNextFrame(next.getSource());
+    }
+    
+    if (next.getSource().getFirstFrameSeen() == 0) {
+      next.getSource().setFirstFrameSent(timer);
+    }
+    
+    next.getSource().setLastFrameSent(timer);
+    
+    if (this.trace != null) {
+      this.trace.record(timer, TraceWriter.TRANSMIT, next, next.getTimeSlot());
+    }
+  }
+  
+  /**
+   Mark a frame as completed and count it towards the statistics
+   
+   @param timer The tick the frame is taken off the wire
+   @param finished The tick the frame arrived at its destination
+  */
+  private void deliver(Event completed, long timer, long finished) {
+    completed.setFinished(finished);
+    
+    /**
+     Frames that reached the bridge port still have to be carried across to their destination's segment, every
+     other frame has arrived and counts towards the node that first sent it
+    */
+    if (completed.getDestination() == this.bridge) {
+      this.forwarded.add(completed);
+    } else {
+      this.delivered_frames++;
+      
+      if (this.hooks == null || !this.hooks.delivered(completed)) {
+        this.accumulator.recordDelivery(completed.getOrigin(), completed.getDestination(), completed.getPayloadSize(), completed.getFinished() - completed.getStarted(), completed.getTotalRetries());
+      }
+      
+      if (this.series != null) {
+        this.series.delivered(timer, completed.getOrigin(), completed.getFinished() - completed.getStarted(), completed.getSource().ticksToSend(completed.getPayloadSize()));
+      }
+    }
+    
+    if (this.trace != null) {
+      this.trace.record(timer, TraceWriter.DELIVERY, completed, completed.getFinished() - completed.getStarted());
+    }
+    
+    if (KEEP_COMPLETED_EVENTS) {
+      this.completedEvents.add(completed);
+    }
+  }
+  
+  /**
+   Increment the retry counter of a frame that collided and schedule it to be sent again according to the backoff
+   algorithm, or drop it once it's been retried too many times
+   
+   @param timer The tick the sender gave up on this attempt
+  */
+  private void backOff(Event event, long timer) {
+    short retries = event.incrementRetries();
+    int delay = 0;
+    
+    /**
+     2) resend the frame immediately (on the next timer cycle) or after 51.2 microseconds (random selection)
+     3) If that fails: k * 51.2 microseconds where k = 0,1,2,3
+     4) If it's still failing, k * 51.2 microseconds where k is [0, 2^3 - 1]
+     5) If it's still failing, try up to [0, 2^10 - 1]
+     Note: 51.2 microseconds = 536.870912 clock ticks in our simulation
+    */
+    
+    /**
+     Determine if we should "immediately" resend the frame or send it again later
+    */
+    if (retries < 17) {
+      if (retries <= 10) {
+        delay = event.getSource().getRandom().nextInt(1 << retries);
+      } else {
+        delay = event.getSource().getRandom().nextInt(11);
+      }
+    } else {
+      /**
+       The specification says that if we we resending 16 times, just drop the frame.
+      */
+      dropped_frames++;
+      
+      if (this.trace != null) {
+        this.trace.record(timer, TraceWriter.DROP, event, retries);
+      }
+      
+      if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+        this.log.info("Dropping frame, 16 retries already attempted: " + event);
+      }
+      
+      if (this.nodeQueues()) {
+        this.nextFrame(event.getSource(), timer);
+      }
+    }
+    
+    /**
+     We haven't gotten to the point where we should drop the frame,
+     so we update the timeslot for it to send again in and queue it.
+    */
+    if (retries < 17) {
+      this.retried_frames++;
+      
+      event.setTimeSlot(timer + (delay * RETRY_DELAY));
+      
+      /**
+       On the bus and the slotted medium the frame stays at the head of its node's queue while the node backs off
+      */
+      if (this.nodeQueues()) {
+        this.ready(event.getSource(), event.getTimeSlot(), Node.MacState.BACKOFF);
+      } else {
+        this.events.add(event);
+      }
+      
+      if (this.trace != null) {
+        this.trace.record(timer, TraceWriter.BACKOFF, event, delay * RETRY_DELAY);
+      }
+      
+      if (this.log.isEnabled(SimulationLog.Level.DEBUG)) {
+        this.log.debug("Triggering resend of frame with delay factor " + delay + " on retry " + retries + ": " + event);
+      }
+    }
+  }
+  
+  /**
+   Hand the current counters to the JMX monitor
+  */
+  private void publish() {
+    this.monitor.publish(this.timer, this.queuedFrames(), (this.bus != null ? this.bus.size() : (this.slots != null ? this.slots.size() : this.onWireEvents.size())), this.transmissions, this.collisions, this.retried_frames, this.dropped_frames, this.delivered_frames);
+  }
+  
+  /**
+   @return How many frames are waiting to be sent, whether or not they've arrived at their nodes yet
+  */
+  private int queuedFrames() {
+    int queued = this.events.size();
+    
+    if (this.nodeQueues()) {
+      for (Node node : this.nodes) {
+        queued += node.getQueueLength();
+      }
+    }
+    
+    return queued;
+  }
+  
+  /**
+   Wrap up after the last tick has been processed
+  */
+  void finish() {
+    this.elapsed_ticks = this.timer;
+    
+    if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+      this.log.info("Simulation complete.  Out of " + this.initial_frames + " initial frames queued, we had " + this.dropped_frames + " dropped frames and " + this.retried_frames + " retried frames");
+    }
+    
+    if (this.workload != null) {
+      if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+        this.log.info("Replayed " + this.workload.getReplayed() + " frames from " + WORKLOAD_FILE + ", skipped " + this.workload.getSkipped() + " between hosts on the same node");
+      }
+    }
+    
+    this.closeFiles();
+    
+    /**
+     Make sure the log is all written out before anything else is printed
+    */
+    this.log.close();
+  }
+  
+  /**
+   Close the files the run has open: the workload it replays, its trace and time series and the offheap scheduler's
+   spill file.  finish() closes them at the end of a run, and reset() whatever a run that failed part way left open
+  */
+  void closeFiles() {
+    if (this.workload != null) {
+      try {
+        this.workload.close();
+      } catch (IOException e) {
+        this.log.warn("Unable to close the workload: " + e);
+      }
+      
+      this.workload = null;
+    }
+    
+    if (this.trace != null) {
+      try {
+        this.trace.close();
+      } catch (IOException e) {
+        this.log.warn("Unable to finish writing the trace: " + e);
+      }
+      
+      this.trace = null;
+    }
+    
+    if (this.series != null) {
+      try {
+        this.series.close(this.timer);
+      } catch (IOException e) {
+        this.log.warn("Unable to finish writing the time series: " + e);
+      }
+      
+      this.series = null;
+    }
+    
+    if (this.events instanceof OffHeapEventStore) {
+      try {
+        ((OffHeapEventStore)this.events).close();
+      } catch (IOException e) {
+        this.log.warn("Unable to close the spill file: " + e);
+      }
+    }
+  }
+  
+  /**
+   Write the whole state of the simulation to a file, so it can be resumed from the tick it's got up to.  The checkpoint
+   is written alongside and moved into place once it's complete, so a crash never leaves a broken one behind
+  */
+  void checkpoint(File file) throws IOException {
+    if (BRIDGED) {
+      throw new IllegalStateException("Segments of a bridged network can't be checkpointed on their own");
+    }
+    
+    File partial = new File(file.getPath() + ".partial");
+    
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+      out.writeLong(CHECKPOINT_MAGIC);
+      out.writeInt(CHECKPOINT_VERSION);
+      
+      /**
+       The attributes of the network
+      */
+      out.writeInt(NODES);
+      out.writeInt(PACKETS_EACH);
+      out.writeLong(DURATION);
+      out.writeInt(PACKET_SIZE);
+      out.writeInt(INTER_FRAME_DELAY);
+      out.writeLong(SEED);
+      out.writeBoolean(KEEP_COMPLETED_EVENTS);
+      out.writeUTF(COLLISIONS);
+      out.writeInt(MEDIUM_SPEED);
+      out.writeInt(SLOT_TIME);
+      out.writeInt(RETRY_DELAY);
+      
+      /**
+       How far it's got
+      */
+      out.writeLong(this.timer);
+      out.writeLong(this.initial_frames);
+      out.writeLong(this.dropped_frames);
+      out.writeLong(this.retried_frames);
+      out.writeLong(this.transmissions);
+      out.writeLong(this.collisions);
+      out.writeLong(this.delivered_frames);
+      out.writeLong(this.random.getSeed());
+      out.writeLong(this.random.getGamma());
+      
+      out.writeInt(this.nodes.size());
+      for (Node node : this.nodes) {
+        node.write(out);
+      }
+      
+      for (Node node : this.nodes) {
+        out.writeInt(node.getDestinationNode() != null ? node.getDestinationNode().getId() : -1);
+        out.writeBoolean(node.getTrafficSource() != null);
+        
+        if (node.getTrafficSource() != null) {
+          node.getTrafficSource().write(out);
+        }
+        
+        writeEvents(out, new ArrayList<Event>(node.getQueuedFrames()));
+      }
+      
+      writeEvents(out, this.onWireEvents);
+      
+      /**
+       The nodes that want the medium are put back in order from their own state, the deferring ones in the order they
+       started deferring
+      */
+      out.writeLong(this.ready_sequence);
+      out.writeInt(this.deferring.size());
+      
+      for (Node node : this.deferring) {
+        out.writeInt(node.getId());
+      }
+      
+      /**
+       The signals on the bus, with how far each sender has got
+      */
+      this.writeSignals(out);
+      
+      /**
+       The frames on the slotted medium are at the head of their senders' queues, so only the senders are needed
+      */
+      out.writeBoolean(this.slots != null);
+      
+      if (this.slots != null) {
+        out.writeInt(this.slots.getSenders().size());
+        
+        for (Node sender : this.slots.getSenders()) {
+          out.writeInt(sender.getId());
+        }
+        
+        out.writeBoolean(this.slots.isBusy());
+        out.writeLong(this.slots.getStarted());
+        out.writeLong(this.slots.getEnd());
+        out.writeLong(this.slots.getQuietAt());
+      }
+      
+      this.writePending(out);
+      writeEvents(out, this.completedEvents);
+      
+      this.accumulator.write(out);
+      
+      out.writeBoolean(this.workload != null);
+      
+      if (this.workload != null) {
+        this.workload.write(out);
+      }
+    }
+    
+    Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+  
+  /**
+   Pick up from a checkpoint in place of setup(), the attributes of the network come from the checkpoint while the
+   scheduler, logging, tracing and monitoring are as configured.  A trace starts from the tick the checkpoint was taken at
+  */
+  void restore(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readLong() != CHECKPOINT_MAGIC) {
+        throw new IOException(file + " isn't a checkpoint");
+      }
+      
+      if (in.readInt() != CHECKPOINT_VERSION) {
+        throw new IOException(file + " was checkpointed by an incompatible version of the simulator");
+      }
+      
+      NODES = in.readInt();
+      PACKETS_EACH = in.readInt();
+      DURATION = in.readLong();
+      PACKET_SIZE = in.readInt();
+      INTER_FRAME_DELAY = in.readInt();
+      SEED = in.readLong();
+      KEEP_COMPLETED_EVENTS = in.readBoolean();
+      COLLISIONS = in.readUTF();
+      MEDIUM_SPEED = in.readInt();
+      SLOT_TIME = in.readInt();
+      RETRY_DELAY = in.readInt();
+      
+      this.events = this.createScheduler(SCHEDULER);
+      this.log = new SimulationLog(LOG_LEVEL, LOG_FILE);
+      
+      this.timer = in.readLong();
+      this.initial_frames = in.readLong();
+      this.dropped_frames = in.readLong();
+      this.retried_frames = in.readLong();
+      this.transmissions = in.readLong();
+      this.collisions = in.readLong();
+      this.delivered_frames = in.readLong();
+      this.random = new SimulationRandom(in.readLong(), in.readLong());
+      
+      if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+        this.log.info("Resuming from " + file + " at " + ((double)this.timer / MEDIUM_SPEED) + " seconds into the simulation with random seed " + SEED);
+      }
+      
+      this.registerMonitor();
+      
+      for (int i = in.readInt(); i > 0; i--) {
+        this.nodes.add(Node.read(in));
+      }
+      
+      this.connectNodes();
+      
+      for (Node node : this.nodes) {
+        int destination = in.readInt();
+        
+        if (destination >= 0) {
+          node.setDestinationNode(this.node(destination));
+        }
+        
+        if (in.readBoolean()) {
+          node.setTrafficSource(TrafficSource.read(in, node, this.nodes));
+        }
+        
+        for (Event event : this.readEvents(in)) {
+          node.enqueue(event);
+        }
+        
+        if (node.getState() == Node.MacState.BACKOFF || (node.getState() == Node.MacState.IDLE && node.getQueueLength() > 0)) {
+          this.ready.add(node);
+        }
+      }
+      
+      this.onWireEvents = this.readEvents(in);
+      this.ready_sequence = in.readLong();
+      
+      for (int i = in.readInt(); i > 0; i--) {
+        this.deferring.add(this.node(in.readInt()));
+      }
+      
+      this.readSignals(in);
+      
+      if (in.readBoolean()) {
+        ArrayList<Node> senders = new ArrayList<Node>();
+        
+        for (int i = in.readInt(); i > 0; i--) {
+          senders.add(this.node(in.readInt()));
+        }
+        
+        this.slots.restore(senders, in.readBoolean(), in.readLong(), in.readLong(), in.readLong());
+      }
+      
+      this.readPending(in);
+      this.completedEvents = this.readEvents(in);
+      this.accumulator = StatisticsAccumulator.read(in, NODES);
+      
+      if (in.readBoolean()) {
+        this.workload = WorkloadReplay.read(in, this.getStations(), MEDIUM_SPEED);
+        WORKLOAD_FILE = this.workload.getFile();
+      }
+    }
+    
+    /**
+     A fork carries on from the same point with different luck
+    */
+    if (FORK_SEED != null) {
+      this.random = new SimulationRandom(FORK_SEED);
+      
+      for (Node node : this.nodes) {
+        node.setRandom(this.random.split());
+      }
+      
+      if (this.log.isEnabled(SimulationLog.Level.INFO)) {
+        this.log.info("Forking with random seed " + FORK_SEED);
+      }
+    }
+    
+    this.startRecording();
+  }
+  
+  /**
+   Write out every transmission on the bus
+  */
+  private void writeSignals(DataOutputStream out) throws IOException {
+    List<Bus.Transmission> signals = (this.bus != null ? this.bus.getTransmissions() : Collections.<Bus.Transmission>emptyList());
+    ArrayList<Event> sent = new ArrayList<Event>(signals.size());
+    
+    for (Bus.Transmission transmission : signals) {
+      sent.add(transmission.event);
+    }
+    
+    writeEvents(out, sent);
+    
+    for (Bus.Transmission transmission : signals) {
+      out.writeLong(transmission.start);
+      out.writeLong(transmission.complete);
+      out.writeLong(transmission.end);
+      out.writeLong(transmission.detected);
+      out.writeBoolean(transmission.reported_collision);
+      out.writeBoolean(transmission.reported_end);
+    }
+  }
+  
+  private void readSignals(DataInputStream in) throws IOException {
+    for (Event event : this.readEvents(in)) {
+      long start = in.readLong(), complete = in.readLong(), end = in.readLong(), detected = in.readLong();
+      boolean reported_collision = in.readBoolean(), reported_end = in.readBoolean();
+      
+      /**
+       A frame that's still being sent is the one at the head of its sender's queue, and has to be the same frame so
+       backing it off or delivering it carries on from there.  The frames of stations this simulation doesn't run are
+       only stand-ins
+      */
+      Bus.Transmission transmission = new Bus.Transmission((reported_end || !this.runs(event.getSource()) ? event : event.getSource().peekFrame()), start, complete);
+      
+      transmission.end = end;
+      transmission.detected = detected;
+      transmission.reported_collision = reported_collision;
+      transmission.reported_end = reported_end;
+      this.bus.restore(transmission);
+    }
+  }
+  
+  /**
+   Write out the pending events.  They're taken out in order and put straight back, they're given new sequence numbers
+   but keep their order, both amongst themselves and ahead of anything queued after them
+  */
+  private void writePending(DataOutputStream out) throws IOException {
+    ArrayList<Event> pending = new ArrayList<Event>(this.events.size());
+    
+    while (this.events.size() > 0) {
+      pending.add(this.events.poll());
+    }
+    
+    for (Event event : pending) {
+      this.events.add(event);
+    }
+    
+    writeEvents(out, pending);
+  }
+  
+  private void readPending(DataInputStream in) throws IOException {
+    for (Event event : this.readEvents(in)) {
+      this.events.add(event);
+    }
+  }
+  
+  private static void writeEvents(DataOutputStream out, List<Event> events) throws IOException {
+    out.writeInt(events.size());
+    
+    for (Event event : events) {
+      out.writeInt(event.getSource().getId());
+      out.writeInt(event.getDestination().getId());
+      out.writeInt(event.getOrigin().getId());
+      out.writeInt(event.getPayloadSize());
+      out.writeInt(event.getCrc());
+      out.writeLong(event.getTimeSlot());
+      out.writeLong(event.getStarted());
+      out.writeShort(event.getRetries());
+      out.writeLong(event.getFinished());
+    }
+  }
+  
+  private ArrayList<Event> readEvents(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    ArrayList<Event> events = new ArrayList<Event>(count);
+    
+    for (int i = 0; i < count; i++) {
+      Node source = this.node(in.readInt()), destination = this.node(in.readInt()), origin = this.node(in.readInt());
+      Event event = new Event(source, destination, in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readShort());
+      
+      event.setFinished(in.readLong());
+      event.setOrigin(origin);
+      events.add(event);
+    }
+    
+    return events;
+  }
+  
+  /**
+   @return The node with the given id
+  */
+  private Node node(int id) {
+    return this.nodes.get(id - this.nodes.get(0).getId());
+  }
+  
+  /**
+   Queue a frame that came across the bridge, to be sent on from this segment's bridge port
+   
+   @param event The frame, due no earlier than the tick the simulation has got up to
+  */
+  void inject(Event event) {
+    this.events.add(event);
+  }
+  
+  /**
+   @return The frames that reached the bridge port since the last call, in the order they arrived
+  */
+  List<Event> takeForwarded() {
+    List<Event> taken = this.forwarded;
+    
+    this.forwarded = new ArrayList<Event>();
+    
+    return taken;
+  }
+  
+  /**
+   @return The earliest tick anything can happen on the segment, Long.MAX_VALUE if it's got nothing left to do
+  */
+  long nextActivity() {
+    long next = Long.MAX_VALUE;
+    
+    for (Event event : this.onWireEvents) {
+      next = Math.min(next, event.getFinishedSlot());
+    }
+    
+    if (this.events.size() > 0) {
+      next = Math.min(next, this.events.peek().getTimeSlot());
+    }
+    
+    if (this.bus != null) {
+      next = Math.min(next, this.bus.nextChange(this.timer - 1));
+      
+      if (this.ready.size() > 0) {
+        next = Math.min(next, this.ready.peek().getReadyAt());
+      }
+      
+      for (Node waiting : this.deferring) {
+        next = Math.min(next, this.bus.idleAt(waiting, this.timer));
+      }
+      
+      if (this.hooks != null) {
+        next = Math.min(next, this.hooks.nextSignalAt());
+      }
+    }
+    
+    if (this.slots != null) {
+      if (this.slots.isBusy()) {
+        next = Math.min(next, this.slots.getEnd());
+      } else if (this.deferring.size() > 0) {
+        next = Math.min(next, this.slots.getQuietAt());
+      } else if (this.ready.size() > 0) {
+        next = Math.min(next, this.slots.nextSlot(this.ready.peek().getReadyAt()));
+      }
+    }
+    
+    return (next == Long.MAX_VALUE ? next : Math.max(next, this.timer));
+  }
+  
+  /**
+   Run the simulation for another engine, call before startTraffic().  The hooks can replace the scheduler
+  */
+  void attach(SimulationHooks hooks) {
+    this.hooks = hooks;
+    this.events = hooks.scheduler(this.events);
+  }
+  
+  /**
+   @return Whether this simulation runs the given station, always unless its hooks say otherwise
+  */
+  private boolean runs(Node station) {
+    return (this.hooks == null || this.hooks.runs(station));
+  }
+  
+  private void changing(Node station) {
+    if (this.hooks != null) {
+      this.hooks.changing(station);
+    }
+  }
+  
+  private TimeWarpEngine.Signal takeSignal(long tick) {
+    return (this.hooks != null ? this.hooks.takeSignal(tick) : null);
+  }
+  
+  /**
+   Write out everything about the run but the stations and the pending events: the clock, the counters, the nodes
+   deferring and the signals on the bus
+  */
+  void writeRunState(DataOutputStream out) throws IOException {
+    out.writeLong(this.timer);
+    out.writeLong(this.initial_frames);
+    out.writeLong(this.dropped_frames);
+    out.writeLong(this.retried_frames);
+    out.writeLong(this.transmissions);
+    out.writeLong(this.collisions);
+    out.writeLong(this.delivered_frames);
+    out.writeLong(this.ready_sequence);
+    out.writeInt(this.deferring.size());
+    
+    for (Node node : this.deferring) {
+      out.writeInt(node.getId());
+    }
+    
+    this.writeSignals(out);
+  }
+  
+  /**
+   Put back what writeRunState() wrote, once the stations are back: the frames they're sending are the ones at the heads
+   of their queues
+  */
+  void readRunState(DataInputStream in) throws IOException {
+    this.timer = in.readLong();
+    this.initial_frames = in.readLong();
+    this.dropped_frames = in.readLong();
+    this.retried_frames = in.readLong();
+    this.transmissions = in.readLong();
+    this.collisions = in.readLong();
+    this.delivered_frames = in.readLong();
+    this.ready_sequence = in.readLong();
+    this.deferring.clear();
+    
+    for (int i = in.readInt(); i > 0; i--) {
+      this.deferring.add(this.node(in.readInt()));
+    }
+    
+    this.bus = new Bus(this.nodes, this.propagation, MEDIUM_SPEED);
+    this.readSignals(in);
+  }
+  
+  /**
+   Write out a station's own state, traffic source and transmit queue
+  */
+  void writeStation(Node station, DataOutputStream out) throws IOException {
+    station.write(out);
+    out.writeBoolean(station.getTrafficSource() != null);
+    
+    if (station.getTrafficSource() != null) {
+      station.getTrafficSource().write(out);
+    }
+    
+    writeEvents(out, new ArrayList<Event>(station.getQueuedFrames()));
+  }
+  
+  /**
+   Put stations back as writeStation() wrote them, each wanting the medium again if it did then
+  */
+  void readStations(Map<Node, DataInputStream> saved) throws IOException {
+    /**
+     They come out of the ready queue while it can still find them in the order they were in
+    */
+    for (Node station : saved.keySet()) {
+      this.ready.remove(station);
+    }
+    
+    for (Map.Entry<Node, DataInputStream> entry : saved.entrySet()) {
+      Node station = entry.getKey();
+      DataInputStream in = entry.getValue();
+      
+      station.rollBack(in);
+      
+      if (in.readBoolean()) {
+        station.setTrafficSource(TrafficSource.read(in, station, this.nodes));
+      }
+      
+      station.getQueuedFrames().clear();
+      
+      for (Event event : this.readEvents(in)) {
+        station.enqueue(event);
+      }
+      
+      if (station.getState() == Node.MacState.BACKOFF || (station.getState() == Node.MacState.IDLE && station.getQueueLength() > 0)) {
+        this.ready.add(station);
+      }
+    }
+  }
+  
+  /**
+   Add the counters, delivered frames and the times the given stations sent their first and last frames of a finished
+   simulation that ran some of this one's stations to this one's.  The run took as long as the longest of them
+  */
+  void absorb(Simulator part, List<Node> stations) {
+    this.initial_frames += part.initial_frames;
+    this.dropped_frames += part.dropped_frames;
+    this.retried_frames += part.retried_frames;
+    this.transmissions += part.transmissions;
+    this.collisions += part.collisions;
+    this.delivered_frames += part.delivered_frames;
+    this.accumulator.add(part.accumulator);
+    this.timer = Math.max(this.timer, part.timer);
+    
+    for (Node station : stations) {
+      this.node(station.getId()).setFirstFrameSent(station.getFirstFrameSeen());
+      this.node(station.getId()).setLastFrameSent(station.getLastFrameSeen());
+    }
+  }
+  
+  /**
+   @return The nodes that send traffic of their own, every node but the bridge port
+  */
+  List<Node> getStations() {
+    return this.nodes.subList(0, NODES);
+  }
+  
+  Node getBridge() {
+    return this.bridge;
+  }
+  
+  SimulationLog getLog() {
+    return this.log;
+  }
+  
+  StatisticsAccumulator getAccumulator() {
+    return this.accumulator;
+  }
+  
+  long getInitialFrames() {
+    return this.initial_frames;
+  }
+  
+  /**
+   @return How many frames were delivered across all the nodes in the last run
+  */
+  long getFramesDelivered() {
+    return this.accumulator.getFramesDelivered();
+  }
+  
+  /**
+   @return The average delay in seconds of all the frames delivered in the last run
+  */
+  double getAverageDelay() {
+    return ((double)this.accumulator.getTotalDelay() / this.accumulator.getFramesDelivered()) / MEDIUM_SPEED;
+  }
+  
+  long getDroppedFrames() {
+    return this.dropped_frames;
+  }
+  
+  long getRetriedFrames() {
+    return this.retried_frames;
+  }
+  
+  /**
+   @return How long the last run took in simulated seconds
+  */
+  double getElapsedSeconds() {
+    return (double)this.elapsed_ticks / MEDIUM_SPEED;
+  }
+  
+  void statistics() {
+    System.out.print(this.report());
+  }
+  
+  /**
+   @return The statistics as statistics() prints them
+  */
+  String report() {
+    ByteArrayOutputStream report = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(report);
+    
+    StatisticsReport.print(out, this.getStations(), this.accumulator, MEDIUM_SPEED);
+    out.flush();
+    
+    return report.toString();
+  }
+  
+  /**
+   @return Whether the run's only result is its statistics, so they can be taken from the cache.  Runs that write a
+           log, trace, time series or checkpoint, or carry on from a checkpoint, always simulate
+  */
+  boolean isCacheable() {
+    return (!NO_CACHE && RESUME_FILE == null && CHECKPOINT_FILE == null && TRACE_FILE == null && TIMESERIES_FILE == null && !JMX &&
+            LOG_FILE == null && LOG_LEVEL == SimulationLog.Level.OFF);
+  }
+  
+  /**
+   @return A canonical description of everything that decides the results of the run, for the result cache.  The
+           scheduler, the logging and holding on to completed events don't change them
+  */
+  String scenario() {
+    StringBuilder scenario = new StringBuilder("simulator");
+    
+    scenario.append("\nnodes=").append(NODES);
+    scenario.append("\npackets_each=").append(PACKETS_EACH);
+    scenario.append("\ninter_frame_delay=").append(INTER_FRAME_DELAY);
+    scenario.append("\npacket_size=").append(PACKET_SIZE);
+    scenario.append("\nduration=").append(DURATION);
+    scenario.append("\nmedium_speed=").append(MEDIUM_SPEED);
+    scenario.append("\nslot_time=").append(this.slotTime());
+    scenario.append("\nretry_delay=").append(this.retryDelay());
+    scenario.append("\ncollisions=").append(COLLISIONS);
+    scenario.append("\nseed=").append(SEED);
+    
+    /**
+     A workload that's been changed since gives different results, as far as can be told without reading all of it
+    */
+    if (WORKLOAD_FILE != null) {
+      File workload = new File(WORKLOAD_FILE);
+      
+      scenario.append("\nworkload=").append(workload.getAbsolutePath()).append(',').append(workload.length()).append(',').append(workload.lastModified());
+    }
+    
+    return scenario.toString();
+  }
+  
+  /**
+   Create the event scheduler to queue pending events in
+   
+   @param name "heap" for a binary heap, "wheel" for a hierarchical timing wheel, "offheap" for a binary heap of
+   packed records outside the Java heap that spills to disk
+   @return The new, empty scheduler
+  */
+  private EventScheduler createScheduler(String name) {
+    if (name.equals("heap")) {
+      return new HeapEventScheduler();
+    } else if (name.equals("wheel")) {
+      return new TimingWheelEventScheduler();
+    } else if (name.equals("offheap")) {
+      return new OffHeapEventStore(this.nodes, OFFHEAP_MEMORY, new File(SPILL_DIRECTORY));
+    }
+    
+    throw new IllegalArgumentException("Unknown event scheduler: " + name);
+  }
+  
+  /**
+   Helper function to check if the medium is clear to send
+   
+   @param source The source node, the dstination is pulled from the various events (if any)
+   @param Timer the current time
+   @return True if the medium is clear (or appears clear), false if data transferring currently
+  */
+  boolean mediumClear(Node source, long timer) {
+    int distance_propogated_from_source = 0;
+    
+    for (Event event : this.onWireEvents) {
+      /**
+        We need to check if bits from the sender would have reached our node at this time
+      */
+      if ((timer - event.getTimeSlot()) <= this.distanceBetweenNodes(source, event.getDestination())) {
+        /**
+         No frames on the wire within 512 bits of distance
+         
+         Any possible bits of a frame haven't reached us yet
+        */
+        return true;
+      } else {
+        /**
+         There exists a frame on the wire within 512 bits of the sender
+        */
+        return false;
+      }
+    }
+    
+    /**
+     By default the medium is clear (we know this because this will only happen when nothing is on the wire)
+    */
+    return true;
+  }
+  
+  /**
+   Work out the next tick at which the state of the simulation can change.  Nothing happens between
+   these instants, so stepping through them one bit at a time is wasted work.
+   
+   The candidates are:
+   * The first tick at which a frame on the wire has finished transmitting
+   * The first tick at which the next queued event is due, provided the medium still looks clear to its
+     source at that point (otherwise it has to wait for the wire to empty, which is covered above)
+   * The first tick at which the next frame of a replayed workload is due
+   
+   @param timer The tick that was just processed
+   @return The next tick worth processing, always at least timer + 1
+  */
+  private long nextActiveTick(long timer) {
+    long next = Long.MAX_VALUE;
+    
+    /**
+     On the bus, something changes when a sender detects a collision or stops, when the next frame arrives at its
+     node, when the first ready node wants the medium, or when a deferring node hears the medium go quiet
+    */
+    if (this.bus != null) {
+      next = this.bus.nextChange(timer);
+      
+      if (this.events.size() > 0) {
+        next = Math.min(next, Math.max(timer + 1, this.events.peek().getTimeSlot()));
+      }
+      
+      if (this.ready.size() > 0) {
+        next = Math.min(next, Math.max(timer + 1, this.ready.peek().getReadyAt()));
+      }
+      
+      for (Node waiting : this.deferring) {
+        next = Math.min(next, this.bus.idleAt(waiting, timer + 1));
+      }
+      
+      if (this.hooks != null && this.hooks.nextSignalAt() != Long.MAX_VALUE) {
+        next = Math.min(next, Math.max(timer + 1, this.hooks.nextSignalAt()));
+      }
+    }
+    
+    /**
+     The slotted medium changes when whatever is on it is done with it, and otherwise at the first slot a node wants it
+    */
+    if (this.slots != null) {
+      if (this.slots.isBusy()) {
+        next = this.slots.getEnd();
+      } else if (this.deferring.size() > 0) {
+        next = this.slots.getQuietAt();
+      } else if (this.ready.size() > 0) {
+        next = this.slots.nextSlot(this.ready.peek().getReadyAt());
+      }
+      
+      if (this.events.size() > 0) {
+        next = Math.min(next, Math.max(timer + 1, this.events.peek().getTimeSlot()));
+      }
+    }
+    
+    for (Event event : this.onWireEvents) {
+      next = Math.min(next, event.getFinishedSlot());
+    }
+    
+    if (this.events.size() > 0) {
+      Event head = this.events.peek();
+      long due = Math.max(timer + 1, head.getTimeSlot());
+      
+      /**
+       mediumClear() only looks at the first event on the wire, and it stays clear up until the bits of that
+       frame would have propagated to the source of the head event
+      */
+      if (this.onWireEvents.size() == 0 || due <= this.onWireEvents.get(0).getTimeSlot() + this.distanceBetweenNodes(head.getSource(), this.onWireEvents.get(0).getDestination())) {
+        next = Math.min(next, due);
+      }
+    }
+    
+    if (this.workload != null) {
+      next = Math.min(next, Math.max(timer + 1, this.workload.nextTick()));
+    }
+    
+    /**
+     Nothing left to happen, the loop is about to finish
+    */
+    if (next == Long.MAX_VALUE) {
+      return timer + 1;
+    }
+    
+    return Math.max(timer + 1, next);
+  }
+  
+  /**
+   Determine the distance between two nodes.  Distance is given as a position (to the right) or negative (to the left)
+   value which indicates distance from the center of the segment, the delays between every pair are worked out when the
+   nodes are set up.
+   
+   @param source The first node
+   @param destination The second node
+   @return The distance (always positive) in bits
+  */
+  int distanceBetweenNodes(Node source, Node destination) {
+    return this.propagation.delay(source.getId(), destination.getId());
+  }
+}
@@ -0,0 +1,123 @@
+package ethernet;
+
+import java.lang.management.ManagementFactory;
+import javax.management.*;
+
+/**
+ The live counters of a running simulation, registered with the platform MBean server as
+ ethernet:type=Simulator,segment=N.
+ 
+ The simulation keeps its counters in plain fields and only copies them here every few thousand steps (and when it
+ stops), so the run itself pays nothing for being watched.  The copies are volatile so they're visible from the JMX
+ threads as soon as they've been published.
+*/
+public class SimulatorMonitor implements SimulatorMonitorMBean {
+  private final int medium_speed;
+  
+  private volatile long timer = 0;
+  private volatile double ticks_per_second = 0.0, events_per_second = 0.0;
+  private volatile int queued_events = 0, on_wire_events = 0;
+  private volatile long transmissions = 0, collisions = 0, retried_frames = 0, dropped_frames = 0, frames_delivered = 0;
+  
+  /**
+   Where the last rates were worked out from, only touched by the simulation
+  */
+  private long last_nanos = System.nanoTime(), last_timer = 0, last_transmissions = 0;
+  
+  /**
+   @param medium_speed The speed of the medium in bits per second, one bit is one tick of the simulation
+  */
+  public SimulatorMonitor(int medium_speed) {
+    this.medium_speed = medium_speed;
+  }
+  
+  /**
+   Register a monitor with the platform MBean server, replacing any earlier one for the same segment
+   
+   @param segment Which segment the simulation is, 0 unless it's part of a bridged network
+   @param medium_speed The speed of the medium in bits per second
+  */
+  public static SimulatorMonitor register(int segment, int medium_speed) throws JMException {
+    SimulatorMonitor monitor = new SimulatorMonitor(medium_speed);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("ethernet:type=Simulator,segment=" + segment);
+    
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    
+    server.registerMBean(monitor, name);
+    
+    return monitor;
+  }
+  
+  /**
+   Copy the simulation's counters, called from the simulation's own thread
+  */
+  void publish(long timer, int queued_events, int on_wire_events, long transmissions, long collisions, long retried_frames, long dropped_frames, long frames_delivered) {
+    long now = System.nanoTime();
+    double elapsed = (double)(now - this.last_nanos) / 1000000000L;
+    
+    if (elapsed > 0) {
+      this.ticks_per_second = (timer - this.last_timer) / elapsed;
+      this.events_per_second = (transmissions - this.last_transmissions) / elapsed;
+    }
+    
+    this.last_nanos = now;
+    this.last_timer = timer;
+    this.last_transmissions = transmissions;
+    
+    this.queued_events = queued_events;
+    this.on_wire_events = on_wire_events;
+    this.transmissions = transmissions;
+    this.collisions = collisions;
+    this.retried_frames = retried_frames;
+    this.dropped_frames = dropped_frames;
+    this.frames_delivered = frames_delivered;
+    this.timer = timer;
+  }
+  
+  public long getTimer() {
+    return this.timer;
+  }
+  
+  public double getSimulatedSeconds() {
+    return (double)this.timer / this.medium_speed;
+  }
+  
+  public double getTicksPerSecond() {
+    return this.ticks_per_second;
+  }
+  
+  public double getEventsPerSecond() {
+    return this.events_per_second;
+  }
+  
+  public int getQueuedEvents() {
+    return this.queued_events;
+  }
+  
+  public int getOnWireEvents() {
+    return this.on_wire_events;
+  }
+  
+  public long getTransmissions() {
+    return this.transmissions;
+  }
+  
+  public long getCollisions() {
+    return this.collisions;
+  }
+  
+  public long getRetriedFrames() {
+    return this.retried_frames;
+  }
+  
+  public long getDroppedFrames() {
+    return this.dropped_frames;
+  }
+  
+  public long getFramesDelivered() {
+    return this.frames_delivered;
+  }
+}
@@ -0,0 +1,49 @@
+package ethernet;
+
+/**
+ What a running simulation exposes over JMX, so a long run can be watched from jconsole or recorded by JFR
+*/
+public interface SimulatorMonitorMBean {
+  /**
+   @return The tick the simulation has got up to
+  */
+  public long getTimer();
+  
+  /**
+   @return How far into the simulation the timer is, in simulated seconds
+  */
+  public double getSimulatedSeconds();
+  
+  /**
+   @return Ticks simulated per second of wall clock time, over the last few thousand steps
+  */
+  public double getTicksPerSecond();
+  
+  /**
+   @return Frames put on the wire per second of wall clock time, over the last few thousand steps
+  */
+  public double getEventsPerSecond();
+  
+  /**
+   @return How many events are queued waiting for their time slot or the medium
+  */
+  public int getQueuedEvents();
+  
+  /**
+   @return How many frames are on the wire
+  */
+  public int getOnWireEvents();
+  
+  /**
+   @return How many frames have been put on the wire, including retries
+  */
+  public long getTransmissions();
+  
+  public long getCollisions();
+  
+  public long getRetriedFrames();
+  
+  public long getDroppedFrames();
+  
+  public long getFramesDelivered();
+}
@@ -0,0 +1,310 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+/**
+ Runs scenario after scenario in one long lived JVM, so a scripted batch of short simulations pays for starting Java and
+ warming up the JIT once instead of once per simulation.  Scenarios are read a line at a time from stdin, or from
+ connections to a local port, and each connection reuses one Simulator, reset between scenarios.
+ 
+ A scenario is key=value pairs separated by spaces or commas, or a flat JSON object:
+ 
+   nodes=16 packets=300 load=3 seed=42
+   {"id": "big", "nodes": 64, "packets": 300, "load": 0.5, "packet-size": 1500}
+ 
+ The keys are the simulator's prompts and options: nodes, packets, load (Mbps), packet-size, duration, medium-speed,
+ slot-time, retry-delay, collisions, scheduler, workload and seed, plus an id that's handed back with the result.
+ Anything not given has the simulator's default, and without a seed each scenario gets a random one.  Blank lines and
+ lines starting with # are skipped.
+ 
+ Each result is the simulator's statistics between a RESULT line (the id, the seed, whether it came from the result
+ cache and how many milliseconds it took) and an END line.  A scenario that can't be run gets an ERROR line instead,
+ and the server carries on with the next one.
+ 
+ % java SimulatorServer < scenarios.txt
+ % java SimulatorServer --port=7158
+*/
+public class SimulatorServer {
+  /**
+   The port to listen on (on the loopback address only), 0 to read scenarios from stdin
+  */
+  private int port = 0;
+  private ResultCache cache = null;
+  private String cache_directory = ResultCache.defaultDirectory();
+  private long cache_size = 64;
+  private boolean no_cache = false;
+  
+  public static void main(String[] args) {
+    SimulatorServer server = new SimulatorServer();
+    
+    try {
+      for (String arg : args) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        
+        if (arg.startsWith("--port=")) {
+          server.port = Integer.parseInt(value);
+        } else if (arg.equals("--no-cache")) {
+          server.no_cache = true;
+        } else if (arg.startsWith("--cache-dir=")) {
+          server.cache_directory = value;
+        } else if (arg.startsWith("--cache-size=")) {
+          server.cache_size = Long.parseLong(value);
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      
+      if (!server.no_cache) {
+        server.cache = new ResultCache(server.cache_directory, server.cache_size << 20);
+      }
+      
+      if (server.port > 0) {
+        server.listen();
+      } else {
+        server.serve(new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out))));
+      }
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+  }
+  
+  /**
+   Take connections on the port until we're killed, each on its own thread with its own simulator
+  */
+  void listen() throws IOException {
+    ServerSocket server = new ServerSocket(this.port, 50, InetAddress.getLoopbackAddress());
+    
+    System.err.println("Listening for scenarios on " + server.getLocalSocketAddress());
+    
+    while (true) {
+      final Socket connection = server.accept();
+      
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          try {
+            serve(new BufferedReader(new InputStreamReader(connection.getInputStream())), new PrintWriter(new BufferedWriter(new OutputStreamWriter(connection.getOutputStream()))));
+          } catch (IOException e) {
+            System.err.println("Lost connection " + connection.getRemoteSocketAddress() + ": " + e);
+          } finally {
+            try {
+              connection.close();
+            } catch (IOException e) {
+              // already gone
+            }
+          }
+        }
+      }, "scenarios-" + connection.getRemoteSocketAddress());
+      
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+  
+  /**
+   Run every scenario read until the end of the input, writing each result as soon as it's done
+  */
+  void serve(BufferedReader in, PrintWriter out) throws IOException {
+    Simulator sim = new Simulator();
+    String line;
+    
+    while ((line = in.readLine()) != null) {
+      line = line.trim();
+      
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      
+      Map<String, String> scenario = null;
+      
+      try {
+        scenario = parse(line);
+        this.run(sim, scenario, out);
+      } catch (RuntimeException e) {
+        out.println("ERROR id=" + (scenario != null && scenario.containsKey("id") ? scenario.get("id") : "") + " " + e);
+      }
+      
+      out.flush();
+    }
+    
+    out.flush();
+  }
+  
+  /**
+   Reset the simulator to the scenario, run it (or find it in the cache) and write out its statistics
+  */
+  void run(Simulator sim, Map<String, String> scenario, PrintWriter out) {
+    long started = System.nanoTime();
+    double load = 1.5;
+    
+    sim.reset();
+    sim.LOG_LEVEL = SimulationLog.Level.OFF;
+    sim.NODES = sim.DEFAULT_NODES;
+    sim.PACKETS_EACH = sim.DEFAULT_PACKETS_EACH;
+    
+    for (Map.Entry<String, String> attribute : scenario.entrySet()) {
+      String key = attribute.getKey(), value = attribute.getValue();
+      
+      if (key.equals("id")) {
+        continue;
+      } else if (key.equals("nodes")) {
+        sim.NODES = Integer.parseInt(value);
+      } else if (key.equals("packets")) {
+        sim.PACKETS_EACH = Integer.parseInt(value);
+      } else if (key.equals("load")) {
+        load = Double.parseDouble(value);
+      } else if (key.equals("packet-size")) {
+        sim.PACKET_SIZE = Integer.parseInt(value);
+      } else if (key.equals("duration")) {
+        sim.DURATION = Long.parseLong(value);
+      } else if (key.equals("medium-speed")) {
+        sim.MEDIUM_SPEED = (int)(Double.parseDouble(value) * sim.BIT_FACTOR);
+      } else if (key.equals("slot-time")) {
+        sim.SLOT_TIME = Integer.parseInt(value);
+      } else if (key.equals("retry-delay")) {
+        sim.RETRY_DELAY = Integer.parseInt(value);
+      } else if (key.equals("collisions")) {
+        sim.COLLISIONS = value;
+      } else if (key.equals("scheduler")) {
+        sim.SCHEDULER = value;
+      } else if (key.equals("workload")) {
+        sim.WORKLOAD_FILE = value;
+      } else if (key.equals("seed")) {
+        sim.SEED = Long.parseLong(value);
+      } else {
+        throw new IllegalArgumentException("Unknown attribute: " + key);
+      }
+    }
+    
+    /**
+     The speed of the medium and the size of the packets have to be known to work out the gap between frames
+    */
+    sim.INTER_FRAME_DELAY = sim.interFrameDelay(load);
+    
+    String key = (this.cache != null ? ResultCache.key(sim.scenario()) : null);
+    String results = (key != null ? this.cache.get(key) : null);
+    boolean cached = (results != null);
+    
+    if (!cached) {
+      /**
+       A scenario that fails part way mustn't leave its files open for as long as the server runs
+      */
+      try {
+        sim.setup();
+        sim.run();
+      } finally {
+        sim.closeFiles();
+      }
+      
+      results = sim.report();
+      
+      if (key != null) {
+        this.cache.put(key, results);
+      }
+    }
+    
+    out.println("RESULT id=" + (scenario.containsKey("id") ? scenario.get("id") : "") + " seed=" + sim.SEED + " cached=" + cached + " millis=" + ((System.nanoTime() - started) / 1000000));
+    out.print(results);
+    out.println("END id=" + (scenario.containsKey("id") ? scenario.get("id") : ""));
+  }
+  
+  /**
+   @return The attributes of a scenario given as key=value pairs or a flat JSON object, with underscores in the keys
+           read as dashes so packet_size and packet-size are the same
+  */
+  static Map<String, String> parse(String line) {
+    Map<String, String> scenario = new LinkedHashMap<String, String>();
+    
+    if (line.startsWith("{")) {
+      if (!line.endsWith("}")) {
+        throw new IllegalArgumentException("Unterminated JSON object: " + line);
+      }
+      
+      for (String member : split(line.substring(1, line.length() - 1))) {
+        int colon = colon(member);
+        
+        if (colon < 0) {
+          throw new IllegalArgumentException("Not a JSON member: " + member);
+        }
+        
+        scenario.put(unquote(member.substring(0, colon)).replace('_', '-'), unquote(member.substring(colon + 1)));
+      }
+    } else {
+      for (String pair : line.split("[\\s,]+")) {
+        int equals = pair.indexOf('=');
+        
+        if (equals <= 0) {
+          throw new IllegalArgumentException("Not a key=value pair: " + pair);
+        }
+        
+        scenario.put(pair.substring(0, equals).replace('_', '-'), pair.substring(equals + 1));
+      }
+    }
+    
+    return scenario;
+  }
+  
+  /**
+   @return The members of a JSON object's body, split on the commas that aren't in strings
+  */
+  private static List<String> split(String body) {
+    List<String> members = new ArrayList<String>();
+    boolean quoted = false;
+    int start = 0;
+    
+    for (int i = 0; i < body.length(); i++) {
+      char c = body.charAt(i);
+      
+      if (c == '\\' && quoted) {
+        i++;
+      } else if (c == '"') {
+        quoted = !quoted;
+      } else if (c == ',' && !quoted) {
+        members.add(body.substring(start, i));
+        start = i + 1;
+      }
+    }
+    
+    if (!body.substring(start).trim().isEmpty()) {
+      members.add(body.substring(start));
+    }
+    
+    return members;
+  }
+  
+  /**
+   @return Where the colon after a JSON member's name is, -1 if there isn't one
+  */
+  private static int colon(String member) {
+    boolean quoted = false;
+    
+    for (int i = 0; i < member.length(); i++) {
+      char c = member.charAt(i);
+      
+      if (c == '\\' && quoted) {
+        i++;
+      } else if (c == '"') {
+        quoted = !quoted;
+      } else if (c == ':' && !quoted) {
+        return i;
+      }
+    }
+    
+    return -1;
+  }
+  
+  /**
+   @return A JSON string's contents or any other JSON value as it's written
+  */
+  private static String unquote(String value) {
+    value = value.trim();
+    
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+    
+    return value;
+  }
+}
@@ -0,0 +1,170 @@
+package ethernet;
+
+import java.util.*;
+
+/**
+ The shared medium with time in contention slots rather than bits, a fast approximation of the Bus for sweeps that
+ can do without following every signal along the wire.
+ 
+ Once the medium has gone quiet (the last transmission and the interframe gap are over) it's only looked at once a
+ slot.  Every node that wanted it by then goes at once: a node on its own gets its frame through and holds the medium
+ for as long as the frame takes, two or more collide and hold it until the furthest apart of them have heard each
+ other and sent their jam, which is always within a slot.  Nodes that turn up while the medium is busy defer to the
+ first slot after it goes quiet.
+ 
+ Each node hears the medium go quiet when the last signal has gone by it, so after a frame has got through its sender
+ is the first to hear it quiet and goes again before anyone else can, just as it does on the bus.  Within a slot the
+ node that wants the medium first goes, with any that want it before they could have heard that one, from the
+ propagation table.
+ 
+ What's lost is anything shorter than a slot: a node that wants an idle medium waits for the slot to start, and nodes
+ that start within a propagation delay of each other in different slots don't collide.
+*/
+public class SlottedMedium {
+  private PropagationTable propagation;
+  /**
+   How long a contention slot is in ticks, the same as a backoff slot so retries land on the grid
+  */
+  private long slot;
+  
+  /**
+   The frames on the medium, all started in the same slot, and the tick they're done with it
+  */
+  private ArrayList<Event> sending = new ArrayList<Event>();
+  /**
+   The nodes that sent them, kept once the medium is done with them to work out when everyone hears it go quiet
+  */
+  private ArrayList<Node> senders = new ArrayList<Node>();
+  private long started = 0;
+  private long end = 0;
+  /**
+   The tick the medium is quiet again, the slots are counted from here
+  */
+  private long quiet_at = 0;
+  
+  public SlottedMedium(PropagationTable propagation, long slot) {
+    this.propagation = propagation;
+    this.slot = slot;
+  }
+  
+  /**
+   @return The first tick from the given one at which a slot starts
+  */
+  public long nextSlot(long tick) {
+    if (tick <= this.quiet_at) {
+      return this.quiet_at;
+    }
+    
+    return this.quiet_at + (tick - this.quiet_at + this.slot - 1) / this.slot * this.slot;
+  }
+  
+  /**
+   @return The tick the node hears the medium go quiet, the sender of a frame that got through hears it first and
+           everyone else once its last bit has gone by them.  The jams of a collision are over everywhere at the end
+  */
+  public long quietAt(Node node) {
+    if (this.senders.size() == 1 && this.senders.get(0) != node) {
+      return this.end + this.propagation.delay(this.senders.get(0).getId(), node.getId()) + 1 + Bus.INTERFRAME_GAP;
+    }
+    
+    return this.quiet_at;
+  }
+  
+  /**
+   @return Whether the node wanting the medium at the given tick can hear the other node that started at the given tick
+  */
+  public boolean hears(Node node, long tick, Node other, long other_tick) {
+    return tick - other_tick > this.propagation.delay(node.getId(), other.getId());
+  }
+  
+  /**
+   Put every frame whose node wants the medium in this slot on it, they collide if there's more than one
+  */
+  public void start(List<Event> frames, long tick) {
+    this.sending.addAll(frames);
+    this.senders.clear();
+    
+    for (Event frame : frames) {
+      this.senders.add(frame.getSource());
+    }
+    
+    this.started = tick;
+    
+    if (frames.size() == 1) {
+      Event frame = frames.get(0);
+      
+      this.end = tick + frame.getSource().ticksToSend(frame.getPayloadSize());
+    } else {
+      int furthest = 0;
+      
+      for (int i = 0; i < frames.size(); i++) {
+        for (int j = i + 1; j < frames.size(); j++) {
+          furthest = Math.max(furthest, this.propagation.delay(frames.get(i).getSource().getId(), frames.get(j).getSource().getId()));
+        }
+      }
+      
+      /**
+       Each sender hears the others the tick after their signals arrive and then jams
+      */
+      this.end = tick + furthest + 1 + Bus.JAM_BITS;
+    }
+    
+    this.quiet_at = this.end + Bus.INTERFRAME_GAP;
+  }
+  
+  /**
+   @return The frames that were on the medium, which it's now done with
+  */
+  public List<Event> finish() {
+    List<Event> finished = new ArrayList<Event>(this.sending);
+    
+    this.sending.clear();
+    
+    return finished;
+  }
+  
+  public boolean isBusy() {
+    return this.sending.size() > 0;
+  }
+  
+  public boolean collided() {
+    return this.sending.size() > 1;
+  }
+  
+  public int size() {
+    return this.sending.size();
+  }
+  
+  public List<Node> getSenders() {
+    return this.senders;
+  }
+  
+  public long getStarted() {
+    return this.started;
+  }
+  
+  public long getEnd() {
+    return this.end;
+  }
+  
+  public long getQuietAt() {
+    return this.quiet_at;
+  }
+  
+  /**
+   Pick up from a checkpoint, with the nodes that sent last and whether their frames are still on the medium
+  */
+  void restore(List<Node> senders, boolean busy, long started, long end, long quiet_at) {
+    this.senders.addAll(senders);
+    
+    if (busy) {
+      for (Node sender : senders) {
+        this.sending.add(sender.peekFrame());
+      }
+    }
+    
+    this.started = started;
+    this.end = end;
+    this.quiet_at = quiet_at;
+  }
+}
@@ -0,0 +1,339 @@
+package ethernet;
+
+/**
+ Running totals for every source -> destination pair that has had a frame delivered, updated as each frame leaves the
+ wire so the statistics don't need the completed events kept around.
+ 
+ Pairs are found through a small open addressing table keyed on the two node ids, the totals for each pair live in
+ primitive arrays indexed by the slot the pair was given.
+*/
+public class StatisticsAccumulator {
+  /**
+   The most retries a delivered frame can have had on one segment before it would have been dropped, a bridged frame
+   retried more often than that across both segments is counted with these
+  */
+  public static final int MAX_RETRIES = 16;
+  
+  private static final long EMPTY = -1;
+  
+  /**
+   Open addressing table from pair key to slot
+  */
+  private long[] keys;
+  private int[] slots;
+  
+  /**
+   Per pair totals, indexed by slot
+  */
+  private int pairs = 0;
+  private long[] frames_delivered;
+  private long[] bytes_delivered;
+  private long[] total_delay;
+  private long[][] retry_counts;
+  private DelayHistogram[] delays;
+  /**
+   Every pair's key in order, built when destinations() is first asked for and dropped when a pair is added
+  */
+  private long[] sorted_keys;
+  
+  public StatisticsAccumulator(int nodes) {
+    int capacity = Integer.highestOneBit(Math.max(nodes, 8) * 4 - 1) << 1;
+    
+    this.keys = new long[capacity];
+    this.slots = new int[capacity];
+    java.util.Arrays.fill(this.keys, EMPTY);
+    
+    this.frames_delivered = new long[Math.max(nodes, 8)];
+    this.bytes_delivered = new long[this.frames_delivered.length];
+    this.total_delay = new long[this.frames_delivered.length];
+    this.retry_counts = new long[this.frames_delivered.length][];
+    this.delays = new DelayHistogram[this.frames_delivered.length];
+  }
+  
+  /**
+   Count a frame that made it across the wire
+   
+   @param source The node that sent the frame
+   @param destination The node the frame was sent to
+   @param frame_size The size of the frame in bytes, its payload and 64 bytes of framing
+   @param delay Ticks between the frame first being scheduled and it leaving the wire
+   @param retries How many times the frame had to be resent
+  */
+  public void recordDelivery(Node source, Node destination, int frame_size, long delay, int retries) {
+    int slot = this.slotFor(source, destination, true);
+    
+    this.frames_delivered[slot]++;
+    this.bytes_delivered[slot] += frame_size;
+    this.total_delay[slot] += delay;
+    this.retry_counts[slot][Math.min(retries, MAX_RETRIES)]++;
+    this.delays[slot].record(delay);
+  }
+  
+  /**
+   Fold the totals of another accumulator into this one, pairs that both have seen are added together
+  */
+  public void add(StatisticsAccumulator other) {
+    for (int i = 0; i < other.keys.length; i++) {
+      if (other.keys[i] != EMPTY) {
+        int from = other.slots[i];
+        int slot = this.slotFor(other.keys[i], true);
+        
+        this.frames_delivered[slot] += other.frames_delivered[from];
+        this.bytes_delivered[slot] += other.bytes_delivered[from];
+        this.total_delay[slot] += other.total_delay[from];
+        
+        for (int r = 0; r <= MAX_RETRIES; r++) {
+          this.retry_counts[slot][r] += other.retry_counts[from][r];
+        }
+        
+        this.delays[slot].add(other.delays[from]);
+      }
+    }
+  }
+  
+  /**
+   Write out every pair's totals for a checkpoint
+  */
+  void write(java.io.DataOutput out) throws java.io.IOException {
+    out.writeInt(this.pairs);
+    
+    for (int i = 0; i < this.keys.length; i++) {
+      if (this.keys[i] != EMPTY) {
+        int slot = this.slots[i];
+        
+        out.writeLong(this.keys[i]);
+        out.writeLong(this.frames_delivered[slot]);
+        out.writeLong(this.bytes_delivered[slot]);
+        out.writeLong(this.total_delay[slot]);
+        
+        for (int r = 0; r <= MAX_RETRIES; r++) {
+          out.writeLong(this.retry_counts[slot][r]);
+        }
+        
+        this.delays[slot].write(out);
+      }
+    }
+  }
+  
+  /**
+   @param nodes How many nodes the simulation has
+   @return The totals as they were when write() was called
+  */
+  static StatisticsAccumulator read(java.io.DataInput in, int nodes) throws java.io.IOException {
+    StatisticsAccumulator accumulator = new StatisticsAccumulator(nodes);
+    
+    for (int pairs = in.readInt(); pairs > 0; pairs--) {
+      int slot = accumulator.slotFor(in.readLong(), true);
+      
+      accumulator.frames_delivered[slot] = in.readLong();
+      accumulator.bytes_delivered[slot] = in.readLong();
+      accumulator.total_delay[slot] = in.readLong();
+      
+      for (int r = 0; r <= MAX_RETRIES; r++) {
+        accumulator.retry_counts[slot][r] = in.readLong();
+      }
+      
+      accumulator.delays[slot] = DelayHistogram.read(in);
+    }
+    
+    return accumulator;
+  }
+  
+  /**
+   @return How many frames were delivered between all pairs of nodes
+  */
+  public long getFramesDelivered() {
+    long frames = 0;
+    
+    for (int slot = 0; slot < this.pairs; slot++) {
+      frames += this.frames_delivered[slot];
+    }
+    
+    return frames;
+  }
+  
+  /**
+   @return The delay in ticks summed over every frame delivered between all pairs of nodes
+  */
+  public long getTotalDelay() {
+    long delay = 0;
+    
+    for (int slot = 0; slot < this.pairs; slot++) {
+      delay += this.total_delay[slot];
+    }
+    
+    return delay;
+  }
+  
+  /**
+   @return How many frames were delivered from the source to the destination
+  */
+  public long framesDelivered(Node source, Node destination) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? 0 : this.frames_delivered[slot]);
+  }
+  
+  /**
+   @return How many bytes of frames, framing included, were delivered from the source to the destination
+  */
+  public long bytesDelivered(Node source, Node destination) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? 0 : this.bytes_delivered[slot]);
+  }
+  
+  /**
+   @return The ids of every node the source has had frames delivered to, lowest first
+  */
+  public int[] destinations(Node source) {
+    if (this.sorted_keys == null) {
+      this.sorted_keys = new long[this.pairs];
+      
+      for (int i = 0, j = 0; i < this.keys.length; i++) {
+        if (this.keys[i] != EMPTY) {
+          this.sorted_keys[j++] = this.keys[i];
+        }
+      }
+      
+      java.util.Arrays.sort(this.sorted_keys);
+    }
+    
+    /**
+     Keys are ordered by source then destination, so the source's pairs are all together
+    */
+    long first = (long)source.getId() << 32;
+    int from = java.util.Arrays.binarySearch(this.sorted_keys, first);
+    from = (from < 0 ? -from - 1 : from);
+    int to = from;
+    
+    while (to < this.sorted_keys.length && (this.sorted_keys[to] >>> 32) == source.getId()) {
+      to++;
+    }
+    
+    int[] destinations = new int[to - from];
+    
+    for (int i = from; i < to; i++) {
+      destinations[i - from] = (int)this.sorted_keys[i];
+    }
+    
+    return destinations;
+  }
+  
+  /**
+   @return The average delay in ticks of frames delivered from the source to the destination, NaN if there weren't any
+  */
+  public double averageDelay(Node source, Node destination) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? Double.NaN : (double)this.total_delay[slot] / this.frames_delivered[slot]);
+  }
+  
+  /**
+   @return The delay in ticks at the given percentile (0 - 100) of frames delivered from the source to the destination
+  */
+  public long delayPercentile(Node source, Node destination, double percentile) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? 0 : this.delays[slot].percentile(percentile));
+  }
+  
+  /**
+   @return The longest delay in ticks of a frame delivered from the source to the destination
+  */
+  public long maxDelay(Node source, Node destination) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? 0 : this.delays[slot].getMax());
+  }
+  
+  /**
+   @return How many delivered frames from the source to the destination needed each number of retries (0 - 16)
+  */
+  public long[] retryCounts(Node source, Node destination) {
+    int slot = this.slotFor(source, destination, false);
+    
+    return (slot < 0 ? new long[MAX_RETRIES + 1] : this.retry_counts[slot].clone());
+  }
+  
+  /**
+   Find the slot for a pair of nodes
+   
+   @param create Whether to give the pair a slot if it doesn't have one yet
+   @return The slot, or -1 if the pair doesn't have one and create is false
+  */
+  private int slotFor(Node source, Node destination, boolean create) {
+    return this.slotFor(((long)source.getId() << 32) | (destination.getId() & 0xffffffffL), create);
+  }
+  
+  private int slotFor(long key, boolean create) {
+    int mask = this.keys.length - 1;
+    int i = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    
+    while (this.keys[i] != EMPTY) {
+      if (this.keys[i] == key) {
+        return this.slots[i];
+      }
+      
+      i = (i + 1) & mask;
+    }
+    
+    if (!create) {
+      return -1;
+    }
+    
+    if (this.pairs == this.frames_delivered.length) {
+      this.growSlots();
+    }
+    
+    int slot = this.pairs++;
+    this.sorted_keys = null;
+    this.retry_counts[slot] = new long[MAX_RETRIES + 1];
+    this.delays[slot] = new DelayHistogram();
+    
+    this.keys[i] = key;
+    this.slots[i] = slot;
+    
+    /**
+     Keep the table at most half full so probes stay short
+    */
+    if (this.pairs * 2 > this.keys.length) {
+      this.growTable();
+    }
+    
+    return slot;
+  }
+  
+  private void growSlots() {
+    int capacity = this.frames_delivered.length * 2;
+    
+    this.frames_delivered = java.util.Arrays.copyOf(this.frames_delivered, capacity);
+    this.bytes_delivered = java.util.Arrays.copyOf(this.bytes_delivered, capacity);
+    this.total_delay = java.util.Arrays.copyOf(this.total_delay, capacity);
+    this.retry_counts = java.util.Arrays.copyOf(this.retry_counts, capacity);
+    this.delays = java.util.Arrays.copyOf(this.delays, capacity);
+  }
+  
+  private void growTable() {
+    long[] old_keys = this.keys;
+    int[] old_slots = this.slots;
+    int mask = old_keys.length * 2 - 1;
+    
+    this.keys = new long[old_keys.length * 2];
+    this.slots = new int[old_keys.length * 2];
+    java.util.Arrays.fill(this.keys, EMPTY);
+    
+    for (int j = 0; j < old_keys.length; j++) {
+      if (old_keys[j] != EMPTY) {
+        int i = (int)((old_keys[j] * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        
+        while (this.keys[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        
+        this.keys[i] = old_keys[j];
+        this.slots[i] = old_slots[j];
+      }
+    }
+  }
+}
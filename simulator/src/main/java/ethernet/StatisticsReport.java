@@ -0,0 +1,136 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ Prints the per node statistics at the end of a simulation: a human readable line per pair of nodes with its speed,
+ average delay and delivered frames, a line per pair with its delay percentiles and retries, then the same speed and
+ delay as CSV.  Speeds are worked out from the payload bytes actually delivered.
+*/
+public class StatisticsReport {
+  /**
+   Make bits into Megabits
+  */
+  static final int BIT_FACTOR = 1000000;
+  
+  /**
+   @param out Where to print the statistics
+   @param nodes The nodes of the simulation, each reported against every node it had frames delivered to, its own
+                destination first
+   @param accumulator The totals of the delivered frames
+   @param medium_speed The speed of the medium in bits per second
+  */
+  public static void print(PrintStream out, List<Node> nodes, StatisticsAccumulator accumulator, int medium_speed) {
+    long frames_sent = 0;
+    double speed = 0.0;
+    double delay_in_seconds = 0.0;
+    long time_taken_to_transmit = 0;
+    
+    /**
+     Look everything up once per pair, all three outputs below report the same pairs and numbers
+    */
+    HashMap<Integer, Node> by_id = new HashMap<Integer, Node>();
+    
+    for (Node node : nodes) {
+      by_id.put(node.getId(), node);
+    }
+    
+    List<Node> sources = new ArrayList<Node>();
+    List<Node> destinations = new ArrayList<Node>();
+    List<Double> speeds = new ArrayList<Double>();
+    List<Double> delays = new ArrayList<Double>();
+    
+    /**
+     Human readable statistics output
+    */
+    for (Node node : nodes) {
+      /**
+       A node that never sent anything (in a replayed workload) has nothing to report
+      */
+      if (node.getDestinationNode() == null) {
+        continue;
+      }
+      
+      time_taken_to_transmit = node.getLastFrameSeen() - node.getFirstFrameSeen(); // time in bits
+      
+      for (Node destination : destinationsOf(node, accumulator, by_id)) {
+        frames_sent = accumulator.framesDelivered(node, destination);
+        delay_in_seconds = accumulator.averageDelay(node, destination) / medium_speed;
+        
+        /**
+         Only the payload counts, not the 64 bytes of framing every frame carries
+        */
+        long payload = accumulator.bytesDelivered(node, destination) - frames_sent * 64;
+        
+        speed = (double)(payload * 8) / ((double)time_taken_to_transmit / medium_speed) / BIT_FACTOR;
+        sources.add(node);
+        destinations.add(destination);
+        speeds.add(speed);
+        delays.add(delay_in_seconds);
+        
+        out.println(speedLine(node, destination, speed, delay_in_seconds, frames_sent));
+      }
+    }
+    
+    /**
+     Delay percentiles and how many retries the delivered frames needed
+    */
+    for (int p = 0; p < sources.size(); p++) {
+      Node node = sources.get(p), destination = destinations.get(p);
+      long[] retry_counts = accumulator.retryCounts(node, destination);
+      String retries = "";
+      
+      for (int i = 0; i < retry_counts.length; i++) {
+        if (retry_counts[i] > 0) {
+          retries += (retries.length() > 0 ? " " : "") + i + ":" + retry_counts[i];
+        }
+      }
+      
+      out.println("Delay from " + node.getMacAddress() + " -> " + destination + ": p50 " + ((double)accumulator.delayPercentile(node, destination, 50) / medium_speed) + " seconds, p99 " + ((double)accumulator.delayPercentile(node, destination, 99) / medium_speed) + " seconds, max " + ((double)accumulator.maxDelay(node, destination) / medium_speed) + " seconds, frames by retries [" + retries + "]");
+    }
+    
+    /**
+     CSV output
+    */
+    for (int p = 0; p < sources.size(); p++) {
+      out.println(csvLine(sources.get(p), destinations.get(p), speeds.get(p), delays.get(p)));
+    }
+  }
+  
+  /**
+   A synthetic node only ever sends to its destination, which is reported even if nothing got through.  A node replaying
+   a workload can send to several, the speed to each is over the whole time the node was sending
+   
+   @return The nodes to report the node against, its destination first then the rest in order of id
+  */
+  private static List<Node> destinationsOf(Node node, StatisticsAccumulator accumulator, HashMap<Integer, Node> by_id) {
+    List<Node> destinations = new ArrayList<Node>();
+    
+    destinations.add(node.getDestinationNode());
+    
+    for (int id : accumulator.destinations(node)) {
+      Node destination = by_id.get(id);
+      
+      if (destination != null && destination != node.getDestinationNode()) {
+        destinations.add(destination);
+      }
+    }
+    
+    return destinations;
+  }
+  
+  /**
+   @return The human readable line for a node's speed, average delay and delivered frames
+  */
+  static String speedLine(Node node, Node destination, double speed, double delay_in_seconds, long frames_sent) {
+    return "Speed to transmit from " + node.getMacAddress() + " -> " + destination + ": " + (Math.floor(speed * 10000) / 10000) + " Mbps with an average delay of " + delay_in_seconds + " seconds and " + frames_sent + " successfully transmitted frames";
+  }
+  
+  /**
+   @return The CSV line for a node's speed and average delay
+  */
+  static String csvLine(Node node, Node destination, double speed, double delay_in_seconds) {
+    return node.getMacAddress() + "," + destination + "," + (Math.floor(speed * 10000) / 10000) + " Mbps," + delay_in_seconds;
+  }
+}
@@ -0,0 +1,322 @@
+package ethernet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+/**
+ Runs the simulator over a grid of network attributes in parallel, with no prompting, and writes one CSV row per
+ combination with the mean and 95% confidence interval of each metric across the replications.
+ 
+ Every replication gets its own Simulator, so the tasks share nothing and can run on as many cores as we have.
+ Replications already run with the same attributes and seed are taken from the result cache unless --no-cache is given.
+ 
+ % java SweepRunner --nodes=8,16,32 --load=1.5,3 --packet-size=512,1024 --packets=1280 --replications=10 --output=sweep.csv
+ % java SweepRunner --nodes=8,16,32,64,128 --load=0.1,0.5,1.5 --collisions=slotted
+*/
+public class SweepRunner {
+  /**
+   The metrics reported for each run, in the order they're written out
+  */
+  static final String[] METRICS = { "throughput_mbps", "average_delay_s", "delivered_frames", "dropped_frames", "retried_frames" };
+  
+  /**
+   Two sided 95% critical values of Student's t distribution for 1 - 30 degrees of freedom
+  */
+  private static final double[] T_95 = {
+    12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+    2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+    2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+  };
+  
+  private int[] nodes = { 8 };
+  private double[] loads = { 1.5 };
+  private int[] packet_sizes = { 512 };
+  private int packets_each = 1280;
+  private int replications = 5;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private String scheduler = "heap";
+  /**
+   The collision model, "slotted" for quick sweeps that can put up with its approximation
+  */
+  private String collisions = "bus";
+  /**
+   Every replication's seed is split off of this, so the whole sweep can be replayed
+  */
+  private long seed = new SplittableRandom().nextLong();
+  private String output = "sweep.csv";
+  /**
+   Replications that have been run before with the same attributes and seed are taken from here (see ResultCache),
+   null to simulate every one
+  */
+  private ResultCache cache = null;
+  private String cache_directory = ResultCache.defaultDirectory();
+  private long cache_size = 64;
+  private boolean no_cache = false;
+  
+  public static void main(String[] args) {
+    SweepRunner sweep = new SweepRunner();
+    
+    try {
+      for (String arg : args) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        
+        if (arg.startsWith("--nodes=")) {
+          sweep.nodes = parseInts(value);
+        } else if (arg.startsWith("--load=")) {
+          sweep.loads = parseDoubles(value);
+        } else if (arg.startsWith("--packet-size=")) {
+          sweep.packet_sizes = parseInts(value);
+        } else if (arg.startsWith("--packets=")) {
+          sweep.packets_each = Integer.parseInt(value);
+        } else if (arg.startsWith("--replications=")) {
+          sweep.replications = Integer.parseInt(value);
+        } else if (arg.startsWith("--threads=")) {
+          sweep.threads = Integer.parseInt(value);
+        } else if (arg.startsWith("--scheduler=")) {
+          sweep.scheduler = value;
+        } else if (arg.startsWith("--collisions=")) {
+          sweep.collisions = value;
+        } else if (arg.startsWith("--seed=")) {
+          sweep.seed = Long.parseLong(value);
+        } else if (arg.startsWith("--output=")) {
+          sweep.output = value;
+        } else if (arg.equals("--no-cache")) {
+          sweep.no_cache = true;
+        } else if (arg.startsWith("--cache-dir=")) {
+          sweep.cache_directory = value;
+        } else if (arg.startsWith("--cache-size=")) {
+          sweep.cache_size = Long.parseLong(value);
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      
+      sweep.run();
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+  }
+  
+  /**
+   Run every combination of attributes the given number of times and write out the merged results
+  */
+  void run() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(this.threads);
+    SplittableRandom seeds = new SplittableRandom(this.seed);
+    List<double[]> configurations = new ArrayList<double[]>();
+    List<List<ForkJoinTask<double[]>>> runs = new ArrayList<List<ForkJoinTask<double[]>>>();
+    
+    if (!this.no_cache) {
+      this.cache = new ResultCache(this.cache_directory, this.cache_size << 20);
+    }
+    
+    try {
+      for (int node_count : this.nodes) {
+        for (double load : this.loads) {
+          for (int packet_size : this.packet_sizes) {
+            List<ForkJoinTask<double[]>> replicated = new ArrayList<ForkJoinTask<double[]>>();
+            
+            for (int i = 0; i < this.replications; i++) {
+              replicated.add(pool.submit(this.task(node_count, load, packet_size, seeds.split().nextLong())));
+            }
+            
+            configurations.add(new double[] { node_count, load, packet_size });
+            runs.add(replicated);
+          }
+        }
+      }
+      
+      System.out.println("Running " + (configurations.size() * this.replications) + " simulations on " + this.threads + " threads with seed " + this.seed);
+      
+      PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(this.output)));
+      try {
+        out.print("nodes,load_mbps,packet_size,replications");
+        for (String metric : METRICS) {
+          out.print("," + metric + "_mean," + metric + "_ci95");
+        }
+        out.println();
+        
+        for (int c = 0; c < configurations.size(); c++) {
+          double[] configuration = configurations.get(c);
+          double[][] results = new double[this.replications][];
+          
+          for (int i = 0; i < this.replications; i++) {
+            results[i] = runs.get(c).get(i).get();
+          }
+          
+          out.print((int)configuration[0] + "," + configuration[1] + "," + (int)configuration[2] + "," + this.replications);
+          for (int m = 0; m < METRICS.length; m++) {
+            double[] samples = new double[this.replications];
+            
+            for (int i = 0; i < this.replications; i++) {
+              samples[i] = results[i][m];
+            }
+            
+            out.print("," + mean(samples) + "," + confidenceInterval(samples));
+          }
+          out.println();
+        }
+      } finally {
+        out.close();
+      }
+      
+      System.out.println("Wrote " + configurations.size() + " rows to " + this.output);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+  
+  /**
+   @return A task that runs one isolated simulation with the given attributes and returns its metrics, or takes them
+           from the cache if it's been run before
+  */
+  private Callable<double[]> task(final int node_count, final double load, final int packet_size, final long seed) {
+    final int packets_each = this.packets_each;
+    final String scheduler = this.scheduler;
+    final String collisions = this.collisions;
+    final ResultCache cache = this.cache;
+    
+    return new Callable<double[]>() {
+      public double[] call() {
+        Simulator sim = configure(node_count, load, packet_size, packets_each, 0, 0, 0, scheduler, collisions, seed);
+        
+        if (cache == null) {
+          return metrics(sim, packet_size);
+        }
+        
+        String key = ResultCache.key("sweep\n" + sim.scenario());
+        String cached = cache.get(key);
+        
+        if (cached != null) {
+          return parseDoubles(cached);
+        }
+        
+        double[] metrics = metrics(sim, packet_size);
+        StringBuilder result = new StringBuilder();
+        
+        for (double metric : metrics) {
+          result.append(result.length() > 0 ? "," : "").append(metric);
+        }
+        
+        cache.put(key, result.toString());
+        
+        return metrics;
+      }
+    };
+  }
+  
+  /**
+   Run one isolated simulation without prompting or logging
+   
+   @param medium_speed The speed of the medium in bits per second, 0 for the simulator's default
+   @param slot_time The slot time and backoff delay in bits, 0 for the simulator's defaults
+   @return The METRICS of the run
+  */
+  static double[] simulate(int node_count, double load, int packet_size, int packets_each, int medium_speed, int slot_time, int retry_delay, String scheduler, String collisions, long seed) {
+    return metrics(configure(node_count, load, packet_size, packets_each, medium_speed, slot_time, retry_delay, scheduler, collisions, seed), packet_size);
+  }
+  
+  /**
+   The one place a simulator is configured without prompting, the benchmarks and tests build theirs here too
+   
+   @param packet_size The payload size in bytes, 0 for the simulator's default
+   @param medium_speed The speed of the medium in bits per second, 0 for the simulator's default
+   @param slot_time The slot time and backoff delay in bits, 0 for the simulator's defaults
+   @return A simulator with the given attributes and logging off, ready to be set up
+  */
+  static Simulator configure(int node_count, double load, int packet_size, int packets_each, int medium_speed, int slot_time, int retry_delay, String scheduler, String collisions, long seed) {
+    Simulator sim = new Simulator();
+    
+    sim.LOG_LEVEL = SimulationLog.Level.OFF;
+    sim.NODES = node_count;
+    sim.PACKETS_EACH = packets_each;
+    
+    if (packet_size > 0) {
+      sim.PACKET_SIZE = packet_size;
+    }
+    
+    if (medium_speed > 0) {
+      sim.MEDIUM_SPEED = medium_speed;
+    }
+    
+    sim.SLOT_TIME = slot_time;
+    sim.RETRY_DELAY = retry_delay;
+    sim.INTER_FRAME_DELAY = sim.interFrameDelay(load);
+    sim.SCHEDULER = scheduler;
+    sim.COLLISIONS = collisions;
+    sim.SEED = seed;
+    
+    return sim;
+  }
+  
+  /**
+   Set up and run the simulator
+   
+   @return The METRICS of the run
+  */
+  private static double[] metrics(Simulator sim, int packet_size) {
+    sim.setup();
+    sim.run();
+    
+    return new double[] {
+      (sim.getFramesDelivered() * packet_size * 8) / sim.getElapsedSeconds() / sim.BIT_FACTOR,
+      sim.getAverageDelay(),
+      sim.getFramesDelivered(),
+      sim.getDroppedFrames(),
+      sim.getRetriedFrames()
+    };
+  }
+  
+  static double mean(double[] samples) {
+    double total = 0.0;
+    
+    for (double sample : samples) {
+      total += sample;
+    }
+    
+    return total / samples.length;
+  }
+  
+  /**
+   @return The half width of the 95% confidence interval around the mean of the samples, 0 for a single sample
+  */
+  static double confidenceInterval(double[] samples) {
+    if (samples.length < 2) {
+      return 0.0;
+    }
+    
+    double mean = mean(samples), squares = 0.0;
+    
+    for (double sample : samples) {
+      squares += (sample - mean) * (sample - mean);
+    }
+    
+    double t = (samples.length - 1 <= T_95.length ? T_95[samples.length - 2] : 1.96);
+    
+    return t * Math.sqrt(squares / (samples.length - 1)) / Math.sqrt(samples.length);
+  }
+  
+  static int[] parseInts(String list) {
+    String[] values = list.split(",");
+    int[] parsed = new int[values.length];
+    
+    for (int i = 0; i < values.length; i++) {
+      parsed[i] = Integer.parseInt(values[i].trim());
+    }
+    
+    return parsed;
+  }
+  
+  static double[] parseDoubles(String list) {
+    String[] values = list.split(",");
+    double[] parsed = new double[values.length];
+    
+    for (int i = 0; i < values.length; i++) {
+      parsed[i] = Double.parseDouble(values[i].trim());
+    }
+    
+    return parsed;
+  }
+}
@@ -0,0 +1,189 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ Breaks a simulation up into fixed windows of simulated time and writes a CSV row for each window as soon as it's over,
+ so transients and capture effects that the end of run averages hide can be seen.
+ 
+ Every window gets a row for the whole network (node "all") and a row for each node that did anything in it, with the
+ transmissions, collisions, collision rate, delivered frames, throughput, mean and p99 delay, and the share of the
+ window the channel spent carrying frames that got through (the utilization).  Frames count towards the node that sent
+ them and the window they were delivered in.
+ 
+ Only the current window is kept, so memory stays the same however long the simulation runs.
+*/
+public class TimeSeriesRecorder {
+  /**
+   Make bits into Megabits
+  */
+  static final int BIT_FACTOR = 1000000;
+  
+  private PrintWriter out;
+  private List<Node> nodes;
+  private int first_id;
+  private long window_ticks;
+  private int packet_size;
+  private int medium_speed;
+  
+  /**
+   Where the current window ends
+  */
+  private long window_end;
+  
+  /**
+   The current window's totals, per node and for the whole network
+  */
+  private long[] transmissions, collisions, frames, total_delay, busy_ticks;
+  private DelayHistogram[] delays;
+  private long all_transmissions = 0, all_collisions = 0, all_frames = 0, all_delay = 0, all_busy_ticks = 0;
+  private DelayHistogram all_delays = new DelayHistogram();
+  
+  /**
+   @param file Where to write the CSV
+   @param nodes The nodes of the simulation, in order of id
+   @param window_ticks How long each window is, in ticks
+   @param start The tick the simulation is starting from
+   @param packet_size The size of the payload in the frames, in bytes
+   @param medium_speed The speed of the medium in bits per second
+  */
+  public TimeSeriesRecorder(String file, List<Node> nodes, long window_ticks, long start, int packet_size, int medium_speed) throws IOException {
+    this.out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    this.nodes = nodes;
+    this.first_id = nodes.get(0).getId();
+    this.window_ticks = window_ticks;
+    this.window_end = (start / window_ticks + 1) * window_ticks;
+    this.packet_size = packet_size;
+    this.medium_speed = medium_speed;
+    
+    this.transmissions = new long[nodes.size()];
+    this.collisions = new long[nodes.size()];
+    this.frames = new long[nodes.size()];
+    this.total_delay = new long[nodes.size()];
+    this.busy_ticks = new long[nodes.size()];
+    this.delays = new DelayHistogram[nodes.size()];
+    
+    for (int i = 0; i < nodes.size(); i++) {
+      this.delays[i] = new DelayHistogram();
+    }
+    
+    this.out.println("window_start_s,node,transmissions,collisions,collision_rate,frames_delivered,throughput_mbps,mean_delay_s,p99_delay_s,utilization");
+  }
+  
+  /**
+   A frame was put on the wire
+  */
+  public void transmitted(long tick, Node node) {
+    this.advance(tick);
+    
+    this.transmissions[node.getId() - this.first_id]++;
+    this.all_transmissions++;
+  }
+  
+  /**
+   A frame the node put on the wire collided
+  */
+  public void collided(long tick, Node node) {
+    this.advance(tick);
+    
+    this.collisions[node.getId() - this.first_id]++;
+    this.all_collisions++;
+  }
+  
+  /**
+   A frame the node sent was delivered
+   
+   @param delay Ticks between the frame first being scheduled and it leaving the wire
+   @param wire_ticks How long the frame kept the wire busy
+  */
+  public void delivered(long tick, Node node, long delay, long wire_ticks) {
+    this.advance(tick);
+    
+    int i = node.getId() - this.first_id;
+    
+    this.frames[i]++;
+    this.total_delay[i] += delay;
+    this.busy_ticks[i] += wire_ticks;
+    this.delays[i].record(delay);
+    
+    this.all_frames++;
+    this.all_delay += delay;
+    this.all_busy_ticks += wire_ticks;
+    this.all_delays.record(delay);
+  }
+  
+  /**
+   Write out the window the simulation ended in, and finish the file
+   
+   @param tick The tick the simulation ended at
+  */
+  public void close(long tick) throws IOException {
+    this.advance(tick);
+    this.flush(Math.min(tick, this.window_end) - (this.window_end - this.window_ticks));
+    this.out.close();
+    
+    if (this.out.checkError()) {
+      throw new IOException("Unable to write the time series");
+    }
+  }
+  
+  /**
+   Write out every window that's over by the given tick, including any empty ones in between
+  */
+  private void advance(long tick) {
+    while (tick >= this.window_end) {
+      this.flush(this.window_ticks);
+      this.window_end += this.window_ticks;
+    }
+  }
+  
+  /**
+   Write out the current window's rows and start the next one
+   
+   @param length How many ticks of the window were simulated, less than a whole window for the last one
+  */
+  private void flush(long length) {
+    double start = (double)(this.window_end - this.window_ticks) / this.medium_speed;
+    
+    if (length <= 0) {
+      return;
+    }
+    
+    this.row(start, "all", this.all_transmissions, this.all_collisions, this.all_frames, this.all_delay, this.all_delays, this.all_busy_ticks, length);
+    
+    for (int i = 0; i < this.nodes.size(); i++) {
+      if (this.transmissions[i] > 0 || this.collisions[i] > 0 || this.frames[i] > 0) {
+        this.row(start, this.nodes.get(i).getMacAddress(), this.transmissions[i], this.collisions[i], this.frames[i], this.total_delay[i], this.delays[i], this.busy_ticks[i], length);
+        
+        this.transmissions[i] = 0;
+        this.collisions[i] = 0;
+        this.total_delay[i] = 0;
+        this.busy_ticks[i] = 0;
+        
+        if (this.frames[i] > 0) {
+          this.frames[i] = 0;
+          this.delays[i].reset();
+        }
+      }
+    }
+    
+    this.all_transmissions = 0;
+    this.all_collisions = 0;
+    this.all_frames = 0;
+    this.all_delay = 0;
+    this.all_busy_ticks = 0;
+    this.all_delays.reset();
+  }
+  
+  private void row(double start, String node, long transmissions, long collisions, long frames, long total_delay, DelayHistogram delays, long busy_ticks, long length) {
+    double seconds = (double)length / this.medium_speed;
+    
+    this.out.println(start + "," + node + "," + transmissions + "," + collisions + "," +
+                     (transmissions > 0 ? (double)collisions / transmissions : 0.0) + "," + frames + "," +
+                     ((double)frames * this.packet_size * 8 / seconds / BIT_FACTOR) + "," +
+                     (frames > 0 ? ((double)total_delay / frames) / this.medium_speed : 0.0) + "," +
+                     ((double)delays.percentile(99) / this.medium_speed) + "," +
+                     ((double)busy_ticks / length));
+  }
+}
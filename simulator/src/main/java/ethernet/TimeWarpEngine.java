@@ -0,0 +1,304 @@
+package ethernet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+/**
+ Simulates a single segment optimistically (Time Warp) on several threads.  The stations are split across workers in
+ stretches of the bus.  Each worker (see TimeWarpWorker) is a Simulator that only runs its own stations but keeps a
+ whole copy of the bus, and puts the signals the other workers' stations start on it.  A station only depends on the
+ others through those signals, never on one started in the same tick, so a worker that has been told of every signal
+ started before a tick does just what the sequential simulation does up to that tick.
+ 
+ The workers run through a window of ticks at a time without waiting for each other, speculating that no other
+ worker's station starts sending during it.  At the end of the window they swap the signals their stations started.
+ A worker told of a signal it didn't know about (a straggler) rolls back to the state it saved at the start of the
+ window and runs through it again with everything it's been told, which can change what its own stations started and
+ send the others round again.  A worker whose signals come out the same as last time leaves the others alone.  Once
+ nobody has been told anything new, the end of the window is the global virtual time: the saved states are dropped
+ and the frames delivered during the window count towards the statistics.  The windows get shorter while they keep
+ being rolled back and longer while they don't.
+ 
+ Every window a station sends in is rolled back by the workers that didn't know about it, so it isn't a speedup on its
+ own: with 4 workers on a single core, a fifth to two fifths of the windows are rolled back and the runs take 2.7x to
+ 5x as long as the sequential simulation.  The work that's rolled back only pays off with a core for each worker.
+ 
+ The statistics are the same as the sequential simulation's for the same seed, however many workers there are.  Only
+ the bus collision model with synthetic traffic can be run this way, and the per frame log lines aren't written.
+ 
+ % java Simulator --workers=4 --window=128
+*/
+public class TimeWarpEngine {
+  /**
+   A station starting to send on the bus, as its worker tells the others
+  */
+  static class Signal {
+    final int source;
+    final long start;
+    /**
+     How many ticks the whole frame takes to send, the bus works out whether it's cut short
+    */
+    final long duration;
+    
+    Signal(int source, long start, long duration) {
+      this.source = source;
+      this.start = start;
+      this.duration = duration;
+    }
+    
+    public boolean equals(Object other) {
+      if (!(other instanceof Signal)) {
+        return false;
+      }
+      
+      Signal signal = (Signal)other;
+      
+      return (this.source == signal.source && this.start == signal.start && this.duration == signal.duration);
+    }
+    
+    public int hashCode() {
+      return Long.hashCode(this.start) * 31 + this.source;
+    }
+  }
+  
+  /**
+   Ticks in the first window unless told otherwise, and the fewest and most ticks a window adapts to
+  */
+  static final long DEFAULT_WINDOW = 128;
+  static final long MIN_WINDOW = 8;
+  static final long MAX_WINDOW = 1 << 16;
+  
+  private static final Comparator<Signal> START_ORDER = new Comparator<Signal>() {
+    public int compare(Signal a, Signal b) {
+      return Long.compare(a.start, b.start);
+    }
+  };
+  
+  /**
+   The simulator that was asked to run, it sets up the same network as the workers and is handed their results
+  */
+  private Simulator whole;
+  private TimeWarpWorker[] workers;
+  /**
+   Ticks in the next window: it shrinks by a quarter after a window somebody rolled back and grows by a sixteenth after
+   one nobody did, so the workers run further ahead while the stations are quiet and waste less when they're busy
+  */
+  private long window;
+  private long ticks = 0;
+  /**
+   The end of the window the workers are running through (or have just committed)
+  */
+  private long window_end = 0;
+  private int windows = 0, rolled_back_windows = 0;
+  private long rollbacks = 0;
+  
+  TimeWarpEngine(Simulator whole) {
+    this.whole = whole;
+    this.window = (whole.WINDOW > 0 ? whole.WINDOW : DEFAULT_WINDOW);
+  }
+  
+  /**
+   Build the network in place of Simulator.setup(), once for the results and once for each worker, which only starts
+   the traffic of its own stations
+  */
+  void setup() {
+    Simulator whole = this.whole;
+    
+    if (!whole.COLLISIONS.equals("bus")) {
+      throw new IllegalArgumentException("The optimistic engine only runs the bus collision model");
+    }
+    
+    if (whole.WORKLOAD_FILE != null || whole.RESUME_FILE != null) {
+      throw new IllegalArgumentException("The optimistic engine can't replay a workload or resume from a checkpoint");
+    }
+    
+    if (whole.TRACE_FILE != null || whole.TIMESERIES_FILE != null || whole.CHECKPOINT_FILE != null || whole.JMX || whole.KEEP_COMPLETED_EVENTS) {
+      throw new IllegalArgumentException("The optimistic engine can't trace, record a time series, checkpoint, monitor or keep completed events");
+    }
+    
+    if (whole.SCHEDULER.equals("offheap")) {
+      throw new IllegalArgumentException("The optimistic engine's workers can't share the offheap scheduler's memory");
+    }
+    
+    Simulator[] sims = new Simulator[Math.max(1, Math.min(whole.WORKERS, whole.NODES))];
+    
+    for (int i = 0; i < sims.length; i++) {
+      Simulator worker = new Simulator();
+      
+      worker.LOG_LEVEL = SimulationLog.Level.OFF;
+      worker.NODES = whole.NODES;
+      worker.PACKETS_EACH = whole.PACKETS_EACH;
+      worker.DURATION = whole.DURATION;
+      worker.PACKET_SIZE = whole.PACKET_SIZE;
+      worker.INTER_FRAME_DELAY = whole.INTER_FRAME_DELAY;
+      worker.MEDIUM_SPEED = whole.MEDIUM_SPEED;
+      worker.SLOT_TIME = whole.SLOT_TIME;
+      worker.RETRY_DELAY = whole.RETRY_DELAY;
+      worker.COLLISIONS = whole.COLLISIONS;
+      worker.SCHEDULER = whole.SCHEDULER;
+      worker.SEED = whole.SEED;
+      
+      sims[i] = worker;
+    }
+    
+    whole.createNodes();
+    whole.chooseDestinations(whole.getStations());
+    
+    /**
+     Each worker gets a stretch of the bus, the stations that hear each other soonest are run together
+    */
+    List<Node> stations = new ArrayList<Node>(whole.getStations());
+    
+    stations.sort(new Comparator<Node>() {
+      public int compare(Node a, Node b) {
+        int order = Integer.compare(a.getDistance(), b.getDistance());
+        
+        return (order != 0 ? order : Integer.compare(a.getId(), b.getId()));
+      }
+    });
+    
+    this.workers = new TimeWarpWorker[sims.length];
+    
+    for (int i = 0; i < sims.length; i++) {
+      boolean[] owned = new boolean[whole.NODES];
+      
+      for (int j = i * stations.size() / sims.length; j < (i + 1) * stations.size() / sims.length; j++) {
+        owned[stations.get(j).getId() - whole.FIRST_NODE_ID] = true;
+      }
+      
+      sims[i].createNodes();
+      sims[i].chooseDestinations(sims[i].getStations());
+      this.workers[i] = new TimeWarpWorker(sims[i], owned);
+    }
+  }
+  
+  /**
+   Run the workers window by window until none of them has anything left to do, then hand their results to the
+   simulator that was asked to run
+  */
+  void run() {
+    final int count = this.workers.length;
+    final List<List<Signal>> told = new ArrayList<List<Signal>>(), started = new ArrayList<List<Signal>>();
+    ForkJoinPool pool = new ForkJoinPool(count);
+    
+    for (int i = 0; i < count; i++) {
+      told.add(Collections.<Signal>emptyList());
+      started.add(Collections.<Signal>emptyList());
+    }
+    
+    try {
+      while (true) {
+        long earliest = Long.MAX_VALUE;
+        
+        for (TimeWarpWorker worker : this.workers) {
+          earliest = Math.min(earliest, worker.getSimulator().nextActivity());
+        }
+        
+        if (earliest == Long.MAX_VALUE) {
+          break;
+        }
+        
+        /**
+         Nothing happens anywhere before the earliest activity, so the window starts there if that's later
+        */
+        this.window_end = Math.max(this.window_end, earliest) + this.window;
+        this.ticks += this.window;
+        
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        
+        for (int i = 0; i < count; i++) {
+          this.workers[i].saveState();
+          told.set(i, Collections.<Signal>emptyList());
+          tasks.add(this.speculate(i, false, told, started));
+        }
+        
+        boolean rolled_back = false;
+        
+        while (tasks.size() > 0) {
+          for (Future<Void> task : pool.invokeAll(tasks)) {
+            task.get();
+          }
+          
+          tasks.clear();
+          
+          /**
+           Tell every worker what the others started, any that hadn't been told all of it go back and run the window again
+          */
+          for (int i = 0; i < count; i++) {
+            List<Signal> others = new ArrayList<Signal>();
+            
+            for (int j = 0; j < count; j++) {
+              if (j != i) {
+                others.addAll(started.get(j));
+              }
+            }
+            
+            others.sort(START_ORDER);
+            
+            if (!others.equals(told.get(i))) {
+              told.set(i, others);
+              tasks.add(this.speculate(i, true, told, started));
+              this.rollbacks++;
+              rolled_back = true;
+            }
+          }
+        }
+        
+        /**
+         Nothing can roll back past the end of the window any more, so the saved states can go
+        */
+        for (TimeWarpWorker worker : this.workers) {
+          worker.commit();
+        }
+        
+        this.windows++;
+        this.rolled_back_windows += (rolled_back ? 1 : 0);
+        this.window = (rolled_back ? Math.max(MIN_WINDOW, this.window * 3 / 4) : Math.min(MAX_WINDOW, this.window + Math.max(1, this.window / 16)));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to save a worker's state", e);
+    } catch (InterruptedException | ExecutionException e) {
+      throw new IllegalStateException("A worker of the optimistic engine failed", e);
+    } finally {
+      pool.shutdownNow();
+    }
+    
+    for (TimeWarpWorker worker : this.workers) {
+      this.whole.absorb(worker.getSimulator(), worker.getStations());
+    }
+    
+    if (this.whole.getLog().isEnabled(SimulationLog.Level.INFO)) {
+      this.whole.getLog().info("Ran on " + count + " workers in " + this.windows + " windows of " + (this.windows > 0 ? this.ticks / this.windows : 0) + " ticks on average, " + this.rolled_back_windows + " of them rolled back " + this.rollbacks + " times");
+    }
+    
+    this.whole.finish();
+  }
+  
+  /**
+   @param roll_back Whether to roll the worker back to the start of the window first
+   @return A task that runs a worker through the window with the signals it's been told of, and collects the ones its
+           own stations started
+  */
+  private Callable<Void> speculate(final int i, final boolean roll_back, final List<List<Signal>> told, final List<List<Signal>> started) {
+    final TimeWarpWorker worker = this.workers[i];
+    final List<Signal> signals = told.get(i);
+    
+    return new Callable<Void>() {
+      public Void call() throws IOException {
+        if (roll_back) {
+          worker.rollBack();
+        }
+        
+        worker.receive(signals);
+        worker.getSimulator().runUntil(window_end);
+        
+        synchronized (started) {
+          started.set(i, worker.takeStarted());
+        }
+        
+        return null;
+      }
+    };
+  }
+}
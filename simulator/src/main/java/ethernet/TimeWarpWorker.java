@@ -0,0 +1,273 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ One of the optimistic engine's workers (see TimeWarpEngine): a Simulator that only runs some of the stations, and
+ what it takes to roll it back to the start of a window.  The rest of the simulator's state is saved at the start of
+ each window, each of its stations as the window first changes it.  The frames queued during the window are withdrawn
+ on a roll back, and the ones that were waiting before it and have arrived since are queued again.
+ 
+ The deliveries only count towards the simulator's statistics once their window has been committed.
+*/
+public class TimeWarpWorker implements SimulationHooks {
+  /**
+   Keeps track of the frames queued and taken off the simulator's own scheduler during the window
+  */
+  private class WindowScheduler implements EventScheduler {
+    private final EventScheduler events;
+    
+    WindowScheduler(EventScheduler events) {
+      this.events = events;
+    }
+    
+    public void add(Event event) {
+      this.events.add(event);
+      queued.add(event);
+    }
+    
+    /**
+     Skips the frames withdrawn by a roll back as they come up
+    */
+    public Event peek() {
+      while (withdrawn.size() > 0 && this.events.size() > 0 && withdrawn.remove(this.events.peek())) {
+        this.events.poll();
+      }
+      
+      return this.events.peek();
+    }
+    
+    public Event poll() {
+      Event event = this.peek();
+      
+      if (event == null) {
+        return null;
+      }
+      
+      this.events.poll();
+      
+      /**
+       A frame that was waiting before the window started has to be waiting again if it's rolled back, as it is now
+      */
+      if (!queued.remove(event)) {
+        Event waiting = new Event(event.getSource(), event.getDestination(), event.getPayloadSize(), event.getCrc(), event.getTimeSlot(), event.getStarted(), event.getRetries());
+        
+        waiting.setFinished(event.getFinished());
+        waiting.setOrigin(event.getOrigin());
+        waiting.setEarlierRetries(event.getEarlierRetries());
+        arrived.add(waiting);
+      }
+      
+      return event;
+    }
+    
+    public int size() {
+      return this.events.size() - withdrawn.size();
+    }
+    
+    /**
+     Queue an event without it being withdrawn by the next roll back
+    */
+    void restore(Event event) {
+      this.events.add(event);
+    }
+  }
+  
+  private final Simulator sim;
+  private WindowScheduler events;
+  /**
+   Which stations this worker runs, indexed from FIRST_NODE_ID
+  */
+  private final boolean[] owned;
+  private final List<Node> stations = new ArrayList<Node>();
+  /**
+   The signals the other workers' stations start during the current window in order of when they start, the signals
+   this worker's stations have started since it was last asked, and the frames delivered since the last window was
+   committed
+  */
+  private List<TimeWarpEngine.Signal> remote = Collections.<TimeWarpEngine.Signal>emptyList();
+  private int next_remote = 0;
+  private ArrayList<TimeWarpEngine.Signal> started = new ArrayList<TimeWarpEngine.Signal>();
+  private ArrayList<Event> uncommitted = new ArrayList<Event>();
+  /**
+   What the worker rolls back to: the rest of the simulator's state as it was at the start of the window, and each of
+   its stations as it was before the window first changed it
+  */
+  private byte[] saved = null;
+  private byte[][] saved_stations;
+  private ArrayList<Node> changed = new ArrayList<Node>();
+  private Set<Event> queued = new HashSet<Event>();
+  private ArrayList<Event> arrived = new ArrayList<Event>();
+  private Set<Event> withdrawn = new HashSet<Event>();
+  
+  /**
+   @param sim A simulator whose nodes have been created, but whose traffic hasn't been started
+   @param owned Whether each station is run by this worker, indexed from FIRST_NODE_ID
+  */
+  TimeWarpWorker(Simulator sim, boolean[] owned) {
+    this.sim = sim;
+    this.owned = owned;
+    this.saved_stations = new byte[owned.length][];
+    
+    for (Node station : sim.getStations()) {
+      if (this.runs(station)) {
+        this.stations.add(station);
+      }
+    }
+    
+    sim.attach(this);
+    sim.startTraffic();
+  }
+  
+  Simulator getSimulator() {
+    return this.sim;
+  }
+  
+  /**
+   @return The stations this worker runs
+  */
+  List<Node> getStations() {
+    return this.stations;
+  }
+  
+  public EventScheduler scheduler(EventScheduler events) {
+    this.events = new WindowScheduler(events);
+    
+    return this.events;
+  }
+  
+  public boolean runs(Node station) {
+    return this.owned[station.getId() - this.sim.FIRST_NODE_ID];
+  }
+  
+  /**
+   Save the station the first time the window changes it
+  */
+  public void changing(Node station) {
+    if (this.saved == null || this.saved_stations[station.getId() - this.sim.FIRST_NODE_ID] != null) {
+      return;
+    }
+    
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      
+      this.sim.writeStation(station, out);
+      out.flush();
+      
+      this.saved_stations[station.getId() - this.sim.FIRST_NODE_ID] = bytes.toByteArray();
+      this.changed.add(station);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to save " + station + " for a roll back", e);
+    }
+  }
+  
+  public void started(Node station, long tick, long duration) {
+    this.started.add(new TimeWarpEngine.Signal(station.getId(), tick, duration));
+  }
+  
+  public boolean delivered(Event completed) {
+    this.uncommitted.add(completed);
+    
+    return true;
+  }
+  
+  public long nextSignalAt() {
+    return (this.next_remote < this.remote.size() ? this.remote.get(this.next_remote).start : Long.MAX_VALUE);
+  }
+  
+  public TimeWarpEngine.Signal takeSignal(long tick) {
+    if (this.next_remote < this.remote.size() && this.remote.get(this.next_remote).start <= tick) {
+      return this.remote.get(this.next_remote++);
+    }
+    
+    return null;
+  }
+  
+  /**
+   Hand the worker the signals the other workers' stations start during the current window, in order of when they
+   start.  None of them can be before the tick the worker has got up to
+  */
+  void receive(List<TimeWarpEngine.Signal> signals) {
+    this.remote = signals;
+    this.next_remote = 0;
+  }
+  
+  /**
+   @return The signals this worker's stations have started since the last call, in order of when they started
+  */
+  List<TimeWarpEngine.Signal> takeStarted() {
+    List<TimeWarpEngine.Signal> taken = this.started;
+    
+    this.started = new ArrayList<TimeWarpEngine.Signal>();
+    
+    return taken;
+  }
+  
+  /**
+   Save what the worker rolls back to at the start of a window, apart from its stations
+  */
+  void saveState() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    
+    this.sim.writeRunState(out);
+    out.flush();
+    
+    this.saved = bytes.toByteArray();
+    this.queued.clear();
+  }
+  
+  /**
+   Put the worker back as it was when saveState() was called, forgetting whatever it has done since.  Only the
+   stations the window has changed are put back
+  */
+  void rollBack() throws IOException {
+    Map<Node, DataInputStream> stations = new LinkedHashMap<Node, DataInputStream>();
+    
+    for (Node station : this.changed) {
+      stations.put(station, new DataInputStream(new ByteArrayInputStream(this.saved_stations[station.getId() - this.sim.FIRST_NODE_ID])));
+      this.saved_stations[station.getId() - this.sim.FIRST_NODE_ID] = null;
+    }
+    
+    this.sim.readStations(stations);
+    this.changed.clear();
+    this.withdrawn.addAll(this.queued);
+    this.queued.clear();
+    
+    for (Event waiting : this.arrived) {
+      this.events.restore(waiting);
+    }
+    
+    this.arrived.clear();
+    this.sim.readRunState(new DataInputStream(new ByteArrayInputStream(this.saved)));
+    
+    this.remote = Collections.<TimeWarpEngine.Signal>emptyList();
+    this.next_remote = 0;
+    this.started.clear();
+    this.uncommitted.clear();
+  }
+  
+  /**
+   The window can't be rolled back any more, so what was saved for it goes and the frames delivered during it count
+   towards the simulator's statistics
+  */
+  void commit() {
+    for (Event completed : this.uncommitted) {
+      this.sim.getAccumulator().recordDelivery(completed.getOrigin(), completed.getDestination(), completed.getPayloadSize(), completed.getFinished() - completed.getStarted(), completed.getTotalRetries());
+    }
+    
+    for (Node station : this.changed) {
+      this.saved_stations[station.getId() - this.sim.FIRST_NODE_ID] = null;
+    }
+    
+    this.saved = null;
+    this.changed.clear();
+    this.queued.clear();
+    this.arrived.clear();
+    this.uncommitted.clear();
+    this.remote = Collections.<TimeWarpEngine.Signal>emptyList();
+    this.next_remote = 0;
+  }
+}
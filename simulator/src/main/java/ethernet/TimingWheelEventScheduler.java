@@ -0,0 +1,228 @@
+package ethernet;
+
+import java.util.*;
+
+/**
+ Event scheduler backed by a hierarchical timing wheel.
+ 
+ Each level is a wheel of 256 buckets, a bucket on level 0 holds the events for a single tick, a bucket on level 1
+ holds 256 ticks, level 2 holds 65536 ticks and so on.  Events are filed on the lowest level whose bucket still lies
+ ahead of the wheel's current time, and get cascaded down a level as the wheel turns into their bucket.
+ 
+ The backoff algorithm only ever schedules k * RETRY_DELAY ticks ahead with k < 1024 (roughly 550,000 ticks), so
+ requeued frames land within the first three levels and adding them is O(1) no matter how many events are waiting.
+ Events scheduled before the time the wheel has turned to (a traffic source that has fallen behind) are kept in a
+ small heap of their own instead, and go first.
+*/
+public class TimingWheelEventScheduler implements EventScheduler {
+  private static final int BITS = 8;
+  private static final int WHEEL_SIZE = 1 << BITS;
+  private static final int MASK = WHEEL_SIZE - 1;
+  /**
+   Enough levels to cover every non-negative long
+  */
+  private static final int LEVELS = 8;
+  /**
+   The order events are sent in, by time slot and then by when they were added
+  */
+  private static final Comparator<Event> ORDER = new Comparator<Event>() {
+    public int compare(Event a, Event b) {
+      return (a.getTimeSlot() != b.getTimeSlot() ? Long.compare(a.getTimeSlot(), b.getTimeSlot()) : Long.compare(a.getSequence(), b.getSequence()));
+    }
+  };
+  
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private ArrayDeque<Event>[][] buckets = new ArrayDeque[LEVELS][WHEEL_SIZE];
+  /**
+   One bit per bucket, set when the bucket holds any events, so finding the next busy bucket doesn't have to walk
+   all 256 of them
+  */
+  private long[][] occupied = new long[LEVELS][WHEEL_SIZE / 64];
+  /**
+   The time the wheel has turned to, every queued event is at or after this
+  */
+  private long now = 0;
+  /**
+   Events scheduled before now, in order of time slot and then of being added
+  */
+  private PriorityQueue<Event> late = new PriorityQueue<Event>(ORDER);
+  private int size = 0;
+  /**
+   Tie breaker for events in the same time slot
+  */
+  private long sequence = 0;
+  /**
+   The earliest event, cached between calls to peek(), null if it needs to be looked up again
+  */
+  private Event head = null;
+  
+  public void add(Event event) {
+    event.setSequence(this.sequence++);
+    this.size++;
+    
+    if (event.getTimeSlot() < this.now) {
+      this.late.add(event);
+    } else {
+      this.file(event);
+    }
+    
+    if (this.head != null && event.getTimeSlot() < this.head.getTimeSlot()) {
+      this.head = event;
+    }
+  }
+  
+  public Event peek() {
+    if (this.head != null || this.size == 0) {
+      return this.head;
+    }
+    
+    if (this.late.size() > 0) {
+      this.head = this.late.peek();
+      return this.head;
+    }
+    
+    /**
+     Level 0 buckets are a single tick each, so the first busy one holds the earliest events in the order they were
+     added
+    */
+    int index = this.nextOccupied(0, (int)(this.now & MASK));
+    if (index >= 0) {
+      this.head = this.buckets[0][index].peekFirst();
+      return this.head;
+    }
+    
+    /**
+     Otherwise the earliest event is somewhere in the first busy bucket on the next level up that has one
+    */
+    for (int level = 1; level < LEVELS; level++) {
+      int digit = (int)((this.now >>> (level * BITS)) & MASK);
+      
+      if (digit == MASK) {
+        continue;
+      }
+      
+      index = this.nextOccupied(level, digit + 1);
+      if (index >= 0) {
+        this.head = this.earliest(this.buckets[level][index]);
+        return this.head;
+      }
+    }
+    
+    return null;
+  }
+  
+  public Event poll() {
+    Event first = this.peek();
+    
+    if (first == null) {
+      return null;
+    }
+    
+    this.size--;
+    this.head = null;
+    
+    if (first.getTimeSlot() < this.now) {
+      return this.late.poll();
+    }
+    
+    /**
+     Turn the wheel to the event's time slot, which brings it down to the front of its level 0 bucket
+    */
+    if (first.getTimeSlot() > this.now) {
+      this.advance(first.getTimeSlot());
+    }
+    
+    int index = (int)(this.now & MASK);
+    this.buckets[0][index].pollFirst();
+    if (this.buckets[0][index].isEmpty()) {
+      this.occupied[0][index >>> 6] &= ~(1L << index);
+    }
+    
+    return first;
+  }
+  
+  public int size() {
+    return this.size;
+  }
+  
+  /**
+   Place an event into the bucket for its time slot, relative to where the wheel has turned to
+  */
+  private void file(Event event) {
+    long time_slot = event.getTimeSlot();
+    long differing = time_slot ^ this.now;
+    int level = (differing == 0 ? 0 : (63 - Long.numberOfLeadingZeros(differing)) / BITS);
+    int index = (int)((time_slot >>> (level * BITS)) & MASK);
+    
+    if (this.buckets[level][index] == null) {
+      this.buckets[level][index] = new ArrayDeque<Event>();
+    }
+    
+    this.buckets[level][index].addLast(event);
+    this.occupied[level][index >>> 6] |= (1L << index);
+  }
+  
+  /**
+   Turn the wheel forward to the given time, cascading the buckets we've moved into down to the lower levels.
+   
+   The caller guarantees no events are queued before the given time.
+  */
+  private void advance(long time) {
+    long previous = this.now;
+    this.now = time;
+    
+    for (int level = LEVELS - 1; level > 0; level--) {
+      if ((previous >>> (level * BITS)) != (time >>> (level * BITS))) {
+        int index = (int)((time >>> (level * BITS)) & MASK);
+        ArrayDeque<Event> bucket = this.buckets[level][index];
+        
+        if (bucket != null && !bucket.isEmpty()) {
+          this.occupied[level][index >>> 6] &= ~(1L << index);
+          
+          /**
+           Refile in the order they were added, which keeps events in the same time slot in sequence
+          */
+          int count = bucket.size();
+          for (int i = 0; i < count; i++) {
+            this.file(bucket.pollFirst());
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   @return The event in the bucket with the earliest time slot, the first added of those if there's more than one
+  */
+  private Event earliest(ArrayDeque<Event> bucket) {
+    Event earliest = null;
+    
+    for (Event event : bucket) {
+      if (earliest == null || event.getTimeSlot() < earliest.getTimeSlot() || (event.getTimeSlot() == earliest.getTimeSlot() && event.getSequence() < earliest.getSequence())) {
+        earliest = event;
+      }
+    }
+    
+    return earliest;
+  }
+  
+  /**
+   @return The first busy bucket on the given level at or after the given index, or -1 if there isn't one
+  */
+  private int nextOccupied(int level, int from) {
+    int word = from >>> 6;
+    long bits = this.occupied[level][word] & (-1L << (from & 63));
+    
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      
+      if (++word == this.occupied[level].length) {
+        return -1;
+      }
+      
+      bits = this.occupied[level][word];
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ Reads a binary trace written by TraceWriter and prints the same statistics the simulation printed at the end of the
+ run, plus a summary of the transmissions, collisions, backoffs and drops, without running the simulation again.
+ 
+ The trace is streamed through memory mapped regions one at a time, so the memory used doesn't depend on its size.
+ 
+ % java TraceAnalyzer trace.bin
+*/
+public class TraceAnalyzer {
+  /**
+   How much of the file to map at a time, a whole number of records
+  */
+  private static final long REGION_SIZE = 256L << 20;
+  
+  private List<Node> nodes = new ArrayList<Node>();
+  private StatisticsAccumulator accumulator;
+  private int packet_size;
+  private int medium_speed;
+  private long seed;
+  
+  /**
+   Totals across the whole trace
+  */
+  private long transmissions = 0, collisions = 0, backoffs = 0, backoff_ticks = 0, deliveries = 0, drops = 0, last_tick = 0;
+  private long[] collisions_by_node;
+  /**
+   Ticks the delivered frames spent on the wire
+  */
+  private double delivered_ticks = 0;
+  
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.err.println("Usage: java TraceAnalyzer <trace file>");
+      System.exit(-1);
+    }
+    
+    TraceAnalyzer analyzer = new TraceAnalyzer();
+    
+    try {
+      analyzer.read(args[0]);
+    } catch (Exception e) {
+      System.err.println("We encountered a problem, quitting..." + e);
+      System.exit(-1);
+    }
+    
+    analyzer.statistics();
+  }
+  
+  /**
+   Stream the whole trace, accumulating statistics as we go
+  */
+  void read(String file) throws IOException {
+    FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+    
+    try {
+      long position = this.readHeader(channel);
+      long size = channel.size();
+      
+      while (position < size) {
+        long length = Math.min(REGION_SIZE, size - position);
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        
+        for (int offset = 0; offset + TraceWriter.RECORD_SIZE <= length; offset += TraceWriter.RECORD_SIZE) {
+          this.record(region.getLong(offset), region.get(offset + 26), region.getInt(offset + 16), region.getInt(offset + 20), region.getShort(offset + 24), region.getInt(offset + 28), region.getLong(offset + 8));
+        }
+        
+        position += length;
+      }
+    } finally {
+      channel.close();
+    }
+  }
+  
+  /**
+   Read the header and rebuild the nodes
+   
+   @return Where the first record starts
+  */
+  private long readHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(TraceWriter.HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    
+    if (header.remaining() < TraceWriter.HEADER_SIZE || header.getLong() != TraceWriter.MAGIC) {
+      throw new IOException("Not a simulation trace");
+    }
+    
+    int version = header.getInt();
+    if (version != TraceWriter.VERSION) {
+      throw new IOException("Unsupported trace version " + version);
+    }
+    
+    int node_count = header.getInt();
+    this.packet_size = header.getInt();
+    this.medium_speed = header.getInt();
+    this.seed = header.getLong();
+    
+    int padded_count = node_count + (node_count % 2);
+    ByteBuffer table = ByteBuffer.allocate(padded_count * TraceWriter.NODE_SIZE);
+    channel.read(table, TraceWriter.HEADER_SIZE);
+    table.flip();
+    
+    int[] destinations = new int[node_count];
+    for (int i = 0; i < node_count; i++) {
+      long mac = table.getLong();
+      destinations[i] = table.getInt();
+      this.nodes.add(new Node(i, mac, table.getInt()));
+    }
+    
+    for (int i = 0; i < node_count; i++) {
+      if (destinations[i] >= 0) {
+        this.nodes.get(i).setDestinationNode(this.nodes.get(destinations[i]));
+      }
+    }
+    
+    this.accumulator = new StatisticsAccumulator(node_count);
+    this.collisions_by_node = new long[node_count];
+    
+    return TraceWriter.HEADER_SIZE + (long)padded_count * TraceWriter.NODE_SIZE;
+  }
+  
+  private void record(long tick, byte kind, int source, int destination, short retries, int frame_size, long value) {
+    Node node = this.nodes.get(source);
+    
+    this.last_tick = Math.max(this.last_tick, tick);
+    
+    switch (kind) {
+      case TraceWriter.TRANSMIT:
+        /**
+         Same bookkeeping the simulator does when it puts a frame on the wire
+        */
+        if (node.getFirstFrameSeen() == 0) {
+          node.setFirstFrameSent(tick);
+        }
+        node.setLastFrameSent(tick);
+        this.transmissions++;
+        break;
+      case TraceWriter.COLLISION:
+        this.collisions++;
+        this.collisions_by_node[source]++;
+        break;
+      case TraceWriter.BACKOFF:
+        this.backoffs++;
+        this.backoff_ticks += value;
+        break;
+      case TraceWriter.DELIVERY:
+        this.accumulator.recordDelivery(node, this.nodes.get(destination), frame_size, value, retries);
+        this.delivered_ticks += Frame.timeToTransmit(frame_size);
+        this.deliveries++;
+        break;
+      case TraceWriter.DROP:
+        this.drops++;
+        break;
+    }
+  }
+  
+  void statistics() {
+    double seconds = (double)this.last_tick / this.medium_speed;
+    double busy = this.delivered_ticks / Math.max(this.last_tick, 1);
+    
+    System.out.println("Trace of " + this.nodes.size() + " nodes sending " + this.packet_size + " byte payloads at " + this.medium_speed + " bps, seed " + this.seed);
+    System.out.println(this.transmissions + " transmissions, " + this.collisions + " frames in collisions, " + this.backoffs + " backoffs (average " + (this.backoffs > 0 ? (double)this.backoff_ticks / this.backoffs / this.medium_speed : 0.0) + " seconds), " + this.drops + " dropped and " + this.deliveries + " delivered frames over " + seconds + " seconds");
+    System.out.println("Channel utilization by delivered frames: " + (Math.floor(busy * 10000) / 100) + "%");
+    
+    for (Node node : this.nodes) {
+      System.out.println("Collisions involving " + node.getMacAddress() + ": " + this.collisions_by_node[node.getId()]);
+    }
+    
+    StatisticsReport.print(System.out, this.nodes, this.accumulator, this.medium_speed);
+  }
+}
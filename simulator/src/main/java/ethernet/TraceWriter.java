@@ -0,0 +1,139 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ Records everything that happens to every frame during a simulation in a compact binary trace, which TraceAnalyzer can
+ read back afterwards without running the simulation again.
+ 
+ The trace starts with a header (magic, version, node count, payload size, medium speed and seed) followed by the MAC
+ address, destination and position of each node, padded out to a whole record.  After that every record is 32 bytes:
+ 
+   tick (long), value (long), source node (int), destination node (int), retries (short), kind (byte), 1 byte padding,
+   frame size (int)
+ 
+ where the value depends on the kind: the scheduled time slot for a transmit, the number of frames on the wire for a
+ collision, the backoff in ticks for a backoff, and the delay in ticks for a delivery.
+ 
+ Records are written straight into memory mapped regions of the file, so recording costs about as much as a few stores.
+*/
+public class TraceWriter {
+  static final long MAGIC = 0x4538303233545243L; // "E8023TRC"
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 32;
+  static final int NODE_SIZE = 16;
+  static final int RECORD_SIZE = 32;
+  
+  /**
+   Record kinds
+  */
+  static final byte TRANSMIT = 1;
+  static final byte COLLISION = 2;
+  static final byte BACKOFF = 3;
+  static final byte DELIVERY = 4;
+  static final byte DROP = 5;
+  
+  /**
+   How much of the file to map at a time, a whole number of records
+  */
+  static final long REGION_SIZE = 64L << 20;
+  
+  private FileChannel channel;
+  private MappedByteBuffer region;
+  private long region_start = 0;
+  /**
+   Where the next byte goes in the file
+  */
+  private long position = 0;
+  
+  /**
+   Create the trace file and write its header
+   
+   @param file Where to write the trace
+   @param nodes The nodes of the simulation, with their destinations set
+   @param packet_size The size of the payload in the frames, in bytes
+   @param medium_speed The speed of the medium in bits per second
+   @param seed The seed the simulation was run with
+  */
+  public TraceWriter(String file, List<Node> nodes, int packet_size, int medium_speed, long seed) throws IOException {
+    this.channel = new RandomAccessFile(file, "rw").getChannel();
+    this.channel.truncate(0);
+    this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+    
+    this.region.putLong(MAGIC);
+    this.region.putInt(VERSION);
+    this.region.putInt(nodes.size());
+    this.region.putInt(packet_size);
+    this.region.putInt(medium_speed);
+    this.region.putLong(seed);
+    
+    for (Node node : nodes) {
+      this.ensureSpace(NODE_SIZE);
+      this.region.putLong(node.getMac());
+      this.region.putInt(node.getDestinationNode() != null ? node.getDestinationNode().getId() : -1);
+      this.region.putInt(node.getDistance());
+    }
+    
+    /**
+     Pad so records never straddle two regions
+    */
+    if (nodes.size() % 2 == 1) {
+      this.ensureSpace(NODE_SIZE);
+      this.region.put(new byte[NODE_SIZE]);
+    }
+    
+    this.position = this.region_start + this.region.position();
+  }
+  
+  /**
+   Record something that happened to a frame
+   
+   @param tick When it happened
+   @param kind What happened, one of the record kinds
+   @param event The frame it happened to
+   @param value Detail that depends on the kind
+  */
+  public void record(long tick, byte kind, Event event, long value) {
+    this.ensureSpace(RECORD_SIZE);
+    
+    int offset = this.region.position();
+    this.region.putLong(offset, tick);
+    this.region.putLong(offset + 8, value);
+    this.region.putInt(offset + 16, event.getSource().getId());
+    this.region.putInt(offset + 20, event.getDestination().getId());
+    this.region.putShort(offset + 24, event.getRetries());
+    this.region.put(offset + 26, kind);
+    this.region.putInt(offset + 28, event.getPayloadSize());
+    this.region.position(offset + RECORD_SIZE);
+    
+    this.position += RECORD_SIZE;
+  }
+  
+  /**
+   Cut the file down to what was actually written and close it
+  */
+  public void close() throws IOException {
+    this.region = null;
+    this.channel.truncate(this.position);
+    this.channel.close();
+  }
+  
+  /**
+   Map the next region of the file if the current one can't hold the given number of bytes
+  */
+  private void ensureSpace(int bytes) {
+    if (this.region.remaining() >= bytes) {
+      return;
+    }
+    
+    try {
+      this.region_start += this.region.position();
+      this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, this.region_start, REGION_SIZE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to extend the trace file", e);
+    }
+  }
+}
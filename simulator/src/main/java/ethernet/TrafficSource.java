@@ -0,0 +1,102 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ Generates the frames a node sends to its destination, one at a time as the previous one is handed to the MAC, so only
+ one future frame per node is ever queued no matter how long the simulation runs for.
+ 
+ Frames are sent every PACKET_SIZE bits plus the inter frame delay, starting from a random offset and with a little
+ random jitter (usually later, occasionally earlier) added to each gap.
+*/
+public class TrafficSource {
+  private Node source;
+  private Node destination;
+  private int payload_size;
+  private int inter_frame_delay;
+  /**
+   How many more frames to send, or -1 to keep sending until the time limit
+  */
+  private long remaining;
+  /**
+   No frames are scheduled at or after this tick, Long.MAX_VALUE for no limit
+  */
+  private long time_limit;
+  private long time_offset;
+  
+  /**
+   @param source The node sending the frames
+   @param destination The node the frames are sent to
+   @param payload_size The size of each payload in bytes
+   @param inter_frame_delay Bits of idle time to leave between frames
+   @param frames How many frames to send, 0 or less for no limit
+   @param time_limit The tick to stop sending frames at, 0 or less for no limit
+  */
+  public TrafficSource(Node source, Node destination, int payload_size, int inter_frame_delay, long frames, long time_limit) {
+    this.source = source;
+    this.destination = destination;
+    this.payload_size = payload_size;
+    this.inter_frame_delay = inter_frame_delay;
+    this.remaining = (frames > 0 ? frames : -1);
+    this.time_limit = (time_limit > 0 ? time_limit : Long.MAX_VALUE);
+    
+    /**
+     The max may need to be offset in the event we determine that we aren't getting enough collisions and need to minimize the time in which machines can send packets
+     for each machine we initial the offset to a random offset to begin with, this makes it so things won't all send at the same time
+    */
+    this.time_offset = source.getRandom().nextInt(2 << 12);
+  }
+  
+  private TrafficSource(Node source, Node destination, int payload_size, int inter_frame_delay, long remaining, long time_limit, long time_offset) {
+    this.source = source;
+    this.destination = destination;
+    this.payload_size = payload_size;
+    this.inter_frame_delay = inter_frame_delay;
+    this.remaining = remaining;
+    this.time_limit = time_limit;
+    this.time_offset = time_offset;
+  }
+  
+  /**
+   @return The next frame to send, or null if the node is done sending
+  */
+  public Event next() {
+    if (this.remaining == 0 || this.time_offset >= this.time_limit) {
+      return null;
+    }
+    
+    if (this.remaining > 0) {
+      this.remaining--;
+    }
+    
+    Event event = new Event(this.source, this.destination, (64 + this.payload_size), this.source.getRandom().nextInt(), this.time_offset);
+    
+    this.time_offset += (this.payload_size * 8) + this.inter_frame_delay + (this.source.getRandom().nextInt(2 << 8) * (this.source.getRandom().nextInt(10) == 0 ? -1 : 1)); // the next packet should come immediately after this frame + the inter frame delay, not one bit later
+    
+    return event;
+  }
+  
+  /**
+   Write out where the source has got to for a checkpoint
+  */
+  void write(DataOutput out) throws IOException {
+    out.writeInt(this.destination.getId());
+    out.writeInt(this.payload_size);
+    out.writeInt(this.inter_frame_delay);
+    out.writeLong(this.remaining);
+    out.writeLong(this.time_limit);
+    out.writeLong(this.time_offset);
+  }
+  
+  /**
+   @param source The node the source belongs to
+   @param nodes The nodes of the simulation, in order of id
+   @return The source as it was when write() was called
+  */
+  static TrafficSource read(DataInput in, Node source, List<Node> nodes) throws IOException {
+    Node destination = nodes.get(in.readInt() - nodes.get(0).getId());
+    
+    return new TrafficSource(source, destination, in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readLong());
+  }
+}
@@ -0,0 +1,292 @@
+package ethernet;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ Replays captured traffic in place of the synthetic traffic sources.  The workload is a binary file (big endian) with
+ a 12 byte header, the magic number "CS158WKL" and a version, followed by a 20 byte record per frame sent, in order of
+ time:
+ 
+   long  time the frame was sent, in nanoseconds from any starting point
+   int   capture host that sent it
+   int   capture host it was sent to
+   int   size of the frame in bytes
+ 
+ Capture hosts are given nodes in the order they're first seen, going round again once every node has one, so a capture
+ with more hosts than nodes folds several hosts onto each node.  Frames between two hosts on the same node never go on
+ the wire and are skipped.  Each node reports its statistics against every node it sends to.
+ 
+ The file is read through memory mapped regions one at a time and frames are only handed out as they come due, so
+ replaying a capture of any size only ever holds one region and the frames waiting to be sent.
+*/
+public class WorkloadReplay {
+  static final long MAGIC = 0x4353313538574B4CL; // "CS158WKL"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 12;
+  static final int RECORD_SIZE = 20;
+  /**
+   Smallest frame Ethernet will send, shorter frames are padded out to this
+  */
+  static final int MINIMUM_FRAME = 64;
+  /**
+   How much of the file to map at a time, a whole number of records
+  */
+  private static final long REGION_SIZE = RECORD_SIZE * (12L << 20);
+  
+  private String file;
+  private FileChannel channel;
+  private long size;
+  private MappedByteBuffer region;
+  private long region_start = 0, region_end = 0;
+  
+  private List<Node> nodes;
+  private int medium_speed;
+  /**
+   No frames are handed out at or after this tick
+  */
+  private long time_limit;
+  
+  /**
+   Where in the file the record after the pending one starts
+  */
+  private long position = HEADER_SIZE;
+  /**
+   The time of the first record, everything is replayed relative to it
+  */
+  private long first_time;
+  /**
+   The tick of the last record read, to make sure they're in order
+  */
+  private long last_tick = 0;
+  /**
+   The next frame to hand out, null once the workload is used up
+  */
+  private Event pending;
+  
+  /**
+   Which node each capture host has been given, and how many hosts have been given one
+  */
+  private HashMap<Integer, Node> hosts = new HashMap<Integer, Node>();
+  private int host_count = 0;
+  private long replayed = 0, skipped = 0;
+  
+  /**
+   @param file The workload to replay
+   @param nodes The nodes to give capture hosts to
+   @param medium_speed The speed of the medium in bits per second, one bit is one tick of the simulation
+   @param time_limit The tick to stop replaying at
+  */
+  public WorkloadReplay(String file, List<Node> nodes, int medium_speed, long time_limit) throws IOException {
+    this.open(file, nodes, medium_speed, time_limit);
+    
+    /**
+     A workload that's broken from the start doesn't leave its file open
+    */
+    try {
+      if (this.position + RECORD_SIZE <= this.size) {
+        this.first_time = this.map(this.position).getLong((int)(this.position - this.region_start));
+      }
+      
+      this.advance();
+    } catch (IOException | RuntimeException e) {
+      this.close();
+      throw e;
+    }
+  }
+  
+  private WorkloadReplay() {
+  }
+  
+  /**
+   @return The tick the next frame is due, Long.MAX_VALUE if there are no more
+  */
+  public long nextTick() {
+    return (this.pending != null ? this.pending.getTimeSlot() : Long.MAX_VALUE);
+  }
+  
+  /**
+   @return The next frame, or null if there are no more
+  */
+  public Event next() throws IOException {
+    Event event = this.pending;
+    
+    if (event != null) {
+      this.replayed++;
+      this.advance();
+    }
+    
+    return event;
+  }
+  
+  public String getFile() {
+    return this.file;
+  }
+  
+  public long getReplayed() {
+    return this.replayed;
+  }
+  
+  public long getSkipped() {
+    return this.skipped;
+  }
+  
+  public void close() throws IOException {
+    this.region = null;
+    this.channel.close();
+  }
+  
+  /**
+   Write out how far the replay has got for a checkpoint, the workload itself has to still be there to resume from it
+  */
+  void write(DataOutput out) throws IOException {
+    out.writeUTF(this.file);
+    out.writeLong(this.time_limit);
+    out.writeLong(this.first_time);
+    out.writeLong(this.position - (this.pending != null ? RECORD_SIZE : 0));
+    out.writeLong(this.replayed);
+    out.writeLong(this.skipped);
+    out.writeInt(this.host_count);
+    out.writeInt(this.hosts.size());
+    
+    for (Map.Entry<Integer, Node> host : this.hosts.entrySet()) {
+      out.writeInt(host.getKey());
+      out.writeInt(host.getValue().getId());
+    }
+  }
+  
+  /**
+   @param nodes The nodes of the simulation, in order of id
+   @return The replay as it was when write() was called
+  */
+  static WorkloadReplay read(DataInput in, List<Node> nodes, int medium_speed) throws IOException {
+    WorkloadReplay replay = new WorkloadReplay();
+    
+    replay.open(in.readUTF(), nodes, medium_speed, in.readLong());
+    
+    try {
+      replay.first_time = in.readLong();
+      replay.position = in.readLong();
+      replay.replayed = in.readLong();
+      replay.skipped = in.readLong();
+      replay.host_count = in.readInt();
+      
+      for (int i = in.readInt(); i > 0; i--) {
+        replay.hosts.put(in.readInt(), nodes.get(in.readInt() - nodes.get(0).getId()));
+      }
+      
+      replay.advance();
+    } catch (IOException | RuntimeException e) {
+      replay.close();
+      throw e;
+    }
+    
+    return replay;
+  }
+  
+  private void open(String file, List<Node> nodes, int medium_speed, long time_limit) throws IOException {
+    this.file = file;
+    this.nodes = nodes;
+    this.medium_speed = medium_speed;
+    this.time_limit = time_limit;
+    this.channel = new RandomAccessFile(file, "r").getChannel();
+    this.size = this.channel.size();
+    
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    this.channel.read(header, 0);
+    header.flip();
+    
+    if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC) {
+      this.channel.close();
+      throw new IOException(file + " isn't a workload");
+    }
+    
+    int version = header.getInt();
+    if (version != VERSION) {
+      this.channel.close();
+      throw new IOException("Unsupported workload version " + version);
+    }
+  }
+  
+  /**
+   Read records until the next frame that goes on the wire, and make it the pending one
+  */
+  private void advance() throws IOException {
+    this.pending = null;
+    
+    while (this.pending == null && this.position + RECORD_SIZE <= this.size) {
+      MappedByteBuffer region = this.map(this.position);
+      int offset = (int)(this.position - this.region_start);
+      
+      long time = region.getLong(offset);
+      int source_host = region.getInt(offset + 8);
+      int destination_host = region.getInt(offset + 12);
+      int frame_size = region.getInt(offset + 16);
+      
+      this.position += RECORD_SIZE;
+      
+      long tick = (long)((double)(time - this.first_time) * this.medium_speed / 1000000000L);
+      
+      if (tick >= this.time_limit) {
+        this.position = this.size;
+        break;
+      }
+      
+      if (tick < this.last_tick) {
+        throw new IOException(this.file + " isn't in order of time at record " + ((this.position - HEADER_SIZE) / RECORD_SIZE - 1));
+      }
+      
+      this.last_tick = tick;
+      
+      Node source = this.node(source_host), destination = this.node(destination_host);
+      
+      if (source == destination) {
+        this.skipped++;
+        continue;
+      }
+      
+      if (source.getDestinationNode() == null) {
+        source.setDestinationNode(destination);
+      }
+      
+      /**
+       The capture doesn't have the checksums, so one is made up from the record, the same every time it's read
+      */
+      int crc = Long.hashCode(time) * 31 + (source_host ^ destination_host) * 17 + frame_size;
+      
+      this.pending = new Event(source, destination, Math.max(MINIMUM_FRAME, frame_size), crc, tick);
+    }
+  }
+  
+  /**
+   @return The node the capture host has been given, giving it the next one if it hasn't got one yet
+  */
+  private Node node(int host) {
+    Node node = this.hosts.get(host);
+    
+    if (node == null) {
+      node = this.nodes.get(this.host_count++ % this.nodes.size());
+      this.hosts.put(host, node);
+    }
+    
+    return node;
+  }
+  
+  /**
+   @return The region holding the record at the given position, mapping the next one in if it's not already
+  */
+  private MappedByteBuffer map(long position) throws IOException {
+    if (this.region == null || position < this.region_start || position + RECORD_SIZE > this.region_end) {
+      long start = HEADER_SIZE + (position - HEADER_SIZE) / REGION_SIZE * REGION_SIZE;
+      long length = Math.min(REGION_SIZE, this.size - start);
+      
+      this.region = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      this.region_start = start;
+      this.region_end = start + length;
+    }
+    
+    return this.region;
+  }
+}
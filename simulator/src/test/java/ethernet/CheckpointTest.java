@@ -0,0 +1,66 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ A run resumed from a checkpoint has to carry on just as the run that wrote it did
+*/
+public class CheckpointTest {
+  @TempDir
+  File directory;
+  
+  /**
+   Run to the end while checkpointing a few times along the way, then resume from the last checkpoint
+   
+   @return The statistics of the uninterrupted run and of the resumed one
+  */
+  private String[] resume(String collisions, String scheduler) throws IOException {
+    String uninterrupted = Simulations.run(SweepRunner.configure(16, 1.5, 0, 50, 0, 0, 0, "heap", collisions, 7));
+    
+    Simulator checkpointed = SweepRunner.configure(16, 1.5, 0, 50, 0, 0, 0, "heap", collisions, 7);
+    File file = new File(this.directory, "run.ckp");
+    
+    checkpointed.CHECKPOINT_FILE = file.getPath();
+    checkpointed.CHECKPOINT_EVERY = 0.05;
+    assertEquals(uninterrupted, Simulations.run(checkpointed), "checkpointing changed the run");
+    assertTrue(file.exists(), "no checkpoint was written");
+    
+    Simulator resumed = new Simulator();
+    
+    resumed.LOG_LEVEL = SimulationLog.Level.OFF;
+    resumed.SCHEDULER = scheduler;
+    resumed.restore(file);
+    resumed.run();
+    
+    return new String[] { uninterrupted, resumed.report() };
+  }
+  
+  @Test
+  public void resumedRunMatchesUninterruptedRun() throws IOException {
+    String[] reports = this.resume("bus", "heap");
+    
+    assertEquals(reports[0], reports[1]);
+  }
+  
+  /**
+   The pending events are written out in order, whichever scheduler they're read back into
+  */
+  @Test
+  public void resumesOnAnotherScheduler() throws IOException {
+    String[] reports = this.resume("bus", "wheel");
+    
+    assertEquals(reports[0], reports[1]);
+  }
+  
+  @Test
+  public void resumesTheSlottedMedium() throws IOException {
+    String[] reports = this.resume("slotted", "heap");
+    
+    assertEquals(reports[0], reports[1]);
+  }
+}
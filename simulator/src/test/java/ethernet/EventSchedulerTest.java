@@ -0,0 +1,47 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ The event schedulers only change how pending events are kept, every one of them has to hand them out in the same
+ order and so give the same statistics
+*/
+public class EventSchedulerTest {
+  @TempDir
+  File spill;
+  
+  private String run(String scheduler, String collisions, long seed) {
+    Simulator sim = SweepRunner.configure(16, 3, 0, 50, 0, 0, 0, "heap", collisions, seed);
+    
+    sim.SCHEDULER = scheduler;
+    sim.OFFHEAP_MEMORY = 0;
+    sim.SPILL_DIRECTORY = this.spill.getPath();
+    
+    return Simulations.run(sim);
+  }
+  
+  @Test
+  public void schedulersReportTheSameOnTheBus() {
+    for (long seed = 1; seed <= 3; seed++) {
+      String heap = this.run("heap", "bus", seed);
+      
+      assertEquals(heap, this.run("wheel", "bus", seed), "wheel, seed " + seed);
+      assertEquals(heap, this.run("offheap", "bus", seed), "offheap, seed " + seed);
+    }
+  }
+  
+  /**
+   The simple model keeps every frame in the scheduler, retries and all, rather than in its node's queue
+  */
+  @Test
+  public void schedulersReportTheSameWithSimpleCollisions() {
+    String heap = this.run("heap", "simple", 42);
+    
+    assertEquals(heap, this.run("wheel", "simple", 42));
+    assertEquals(heap, this.run("offheap", "simple", 42));
+  }
+}
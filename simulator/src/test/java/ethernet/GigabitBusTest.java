@@ -0,0 +1,60 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ At 1000Mbps a frame only holds the medium for the 4096 bit slot time, so the nodes have to be close enough together
+ that a sender always hears a collision before it's done, or the frame would count as delivered
+*/
+public class GigabitBusTest {
+  private static final int GIGABIT = 1000000000;
+  private static final int SLOT_TIME = 4096;
+  
+  /**
+   The worst case: two nodes as far apart as they can be, the second starting the tick before it would have heard the
+   first
+  */
+  @Test
+  public void collisionHeardAcrossTheLongestSpan() {
+    int span = PropagationTable.longestSpan(GIGABIT, SLOT_TIME);
+    Node left = new Node(0, 1, -span / 2), right = new Node(1, 2, span - span / 2);
+    List<Node> nodes = Arrays.asList(left, right);
+    PropagationTable propagation = new PropagationTable(nodes, GIGABIT);
+    Bus bus = new Bus(nodes, propagation, GIGABIT);
+    int delay = propagation.delay(0, 1);
+    
+    bus.transmit(new Event(left, right, 64, 0, 0), 0, SLOT_TIME);
+    bus.detectCollisions(0);
+    assertFalse(bus.senses(right, delay));
+    bus.transmit(new Event(right, left, 64, 0, delay), delay, SLOT_TIME);
+    bus.detectCollisions(delay);
+    
+    for (Bus.Transmission transmission : bus.getTransmissions()) {
+      assertTrue(transmission.collided(), transmission.event.getSource() + " finished its frame before hearing the collision");
+    }
+  }
+  
+  /**
+   Nodes are placed up to 249 meters either side of the center, further apart than the slot time allows at 1000Mbps
+  */
+  @Test
+  public void nodesFitTheSlotTime() {
+    Simulator sim = SweepRunner.configure(200, 0.01, 64, 1, GIGABIT, 0, 0, "heap", "bus", 5);
+    
+    sim.setup();
+    
+    List<Node> stations = sim.getStations();
+    int furthest = 0;
+    
+    for (Node a : stations) {
+      for (Node b : stations) {
+        furthest = Math.max(furthest, sim.distanceBetweenNodes(a, b));
+      }
+    }
+    
+    assertTrue(2 * furthest + 1 < SLOT_TIME, "a collision between nodes " + furthest + " ticks apart is heard after the slot time");
+  }
+}
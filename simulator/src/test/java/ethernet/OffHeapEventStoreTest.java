@@ -0,0 +1,89 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ The offheap store has to hand its events out in the heap scheduler's order whether their records are in memory or
+ in the spill file.  Its segments are shrunk to 64 records so a few thousand events spill
+*/
+public class OffHeapEventStoreTest {
+  private static final int SEGMENT_BITS = 6;
+  
+  @TempDir
+  File spill;
+  
+  private List<Node> nodes() {
+    List<Node> nodes = new ArrayList<Node>();
+    
+    for (int id = 0; id < 8; id++) {
+      nodes.add(new Node(id, id + 1, id * 10));
+    }
+    
+    return nodes;
+  }
+  
+  /**
+   Queue events at random time slots, taking some off in between, then take the rest off
+  */
+  private void assertSameOrder(OffHeapEventStore store, List<Node> nodes) {
+    HeapEventScheduler heap = new HeapEventScheduler();
+    SplittableRandom random = new SplittableRandom(5);
+    
+    for (int i = 0; i < 5000; i++) {
+      if (random.nextInt(3) == 0 && heap.size() > 0) {
+        this.assertSameEvent(heap.poll(), store.poll());
+        continue;
+      }
+      
+      Node source = nodes.get(random.nextInt(nodes.size()));
+      Node destination = nodes.get(random.nextInt(nodes.size()));
+      long time_slot = random.nextInt(2000);
+      int payload = 64 + random.nextInt(1437);
+      
+      heap.add(new Event(source, destination, payload, i, time_slot));
+      store.add(new Event(source, destination, payload, i, time_slot));
+      assertEquals(heap.size(), store.size());
+    }
+    
+    while (heap.size() > 0) {
+      this.assertSameEvent(heap.poll(), store.poll());
+    }
+    
+    assertNull(store.poll());
+  }
+  
+  private void assertSameEvent(Event expected, Event actual) {
+    assertEquals(expected.getTimeSlot(), actual.getTimeSlot());
+    assertEquals(expected.getSequence(), actual.getSequence());
+    assertSame(expected.getSource(), actual.getSource());
+    assertSame(expected.getDestination(), actual.getDestination());
+    assertEquals(expected.getPayloadSize(), actual.getPayloadSize());
+    assertEquals(expected.getCrc(), actual.getCrc());
+  }
+  
+  @Test
+  public void spillsOnceTheMemoryIsUsedUp() {
+    List<Node> nodes = this.nodes();
+    OffHeapEventStore store = new OffHeapEventStore(nodes, 2 * 64 * OffHeapEventStore.RECORD_SIZE, this.spill, SEGMENT_BITS);
+    
+    this.assertSameOrder(store, nodes);
+    assertTrue(store.getSpilledSegments() > 0, "nothing was spilled");
+  }
+  
+  /**
+   With no memory at all every record lives in the spill file
+  */
+  @Test
+  public void spillsEverythingWithoutMemory() {
+    List<Node> nodes = this.nodes();
+    OffHeapEventStore store = new OffHeapEventStore(nodes, 0, this.spill, SEGMENT_BITS);
+    
+    this.assertSameOrder(store, nodes);
+    assertTrue(store.getSpilledSegments() > 2, "only " + store.getSpilledSegments() + " segments were spilled");
+  }
+}
@@ -0,0 +1,18 @@
+package ethernet;
+
+/**
+ Helpers shared by the tests
+*/
+class Simulations {
+  /**
+   Set up and run the simulator
+   
+   @return The statistics it reports
+  */
+  static String run(Simulator sim) {
+    sim.setup();
+    sim.run();
+    
+    return sim.report();
+  }
+}
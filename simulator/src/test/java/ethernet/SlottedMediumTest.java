@@ -0,0 +1,52 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ The slotted medium only approximates the bus, these are the bounds the README gives for it: throughput within 1%,
+ the average delay within 1% once the network is saturated and 33% at light load with 64 byte payloads.  Each is
+ the mean of 3 replications of 1280 frames
+*/
+public class SlottedMediumTest {
+  /**
+   @return The mean throughput in Mbps and average delay in seconds of the replications
+  */
+  private double[] measure(String collisions, int nodes, double load, int packet_size) {
+    double throughput = 0.0, delay = 0.0;
+    
+    for (long seed = 1; seed <= 3; seed++) {
+      Simulator sim = SweepRunner.configure(nodes, load, packet_size, 1280 / nodes, 0, 0, 0, "heap", collisions, seed);
+      
+      Simulations.run(sim);
+      
+      throughput += (sim.getFramesDelivered() * packet_size * 8) / sim.getElapsedSeconds() / sim.BIT_FACTOR;
+      delay += sim.getAverageDelay();
+    }
+    
+    return new double[] { throughput / 3, delay / 3 };
+  }
+  
+  private void assertWithin(double expected, double actual, double error, String what) {
+    assertTrue(Math.abs(actual - expected) <= error * expected, what + " of " + actual + " isn't within " + (error * 100) + "% of " + expected);
+  }
+  
+  @Test
+  public void saturatedNetworkWithinOnePercent() {
+    double[] bus = this.measure("bus", 64, 1.5, 1500);
+    double[] slotted = this.measure("slotted", 64, 1.5, 1500);
+    
+    this.assertWithin(bus[0], slotted[0], 0.01, "throughput");
+    this.assertWithin(bus[1], slotted[1], 0.01, "average delay");
+  }
+  
+  @Test
+  public void lightLoadWithinDocumentedError() {
+    double[] bus = this.measure("bus", 8, 0.1, 64);
+    double[] slotted = this.measure("slotted", 8, 0.1, 64);
+    
+    this.assertWithin(bus[0], slotted[0], 0.01, "throughput");
+    this.assertWithin(bus[1], slotted[1], 0.33, "average delay");
+  }
+}
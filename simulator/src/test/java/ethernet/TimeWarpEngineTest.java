@@ -0,0 +1,61 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ However many workers there are and however long their windows, the optimistic engine has to report what the
+ sequential simulation does for the same seed
+*/
+public class TimeWarpEngineTest {
+  private String parallel(Simulator sim, int workers, long window) {
+    sim.WORKERS = workers;
+    sim.WINDOW = window;
+    
+    TimeWarpEngine engine = new TimeWarpEngine(sim);
+    
+    engine.setup();
+    engine.run();
+    
+    return sim.report();
+  }
+  
+  @Test
+  public void workersMatchSequentialRun() {
+    for (long seed = 1; seed <= 3; seed++) {
+      String sequential = Simulations.run(SweepRunner.configure(16, 3, 0, 30, 0, 0, 0, "heap", "bus", seed));
+      
+      assertEquals(sequential, this.parallel(SweepRunner.configure(16, 3, 0, 30, 0, 0, 0, "heap", "bus", seed), 3, 0), "3 workers, seed " + seed);
+      assertEquals(sequential, this.parallel(SweepRunner.configure(16, 3, 0, 30, 0, 0, 0, "heap", "bus", seed), 5, 0), "5 workers, seed " + seed);
+    }
+  }
+  
+  /**
+   Short windows are rolled back less, long ones more, neither changes what happens
+  */
+  @Test
+  public void windowLengthDoesNotMatter() {
+    String sequential = Simulations.run(SweepRunner.configure(32, 0.5, 0, 20, 0, 0, 0, "heap", "bus", 11));
+    
+    assertEquals(sequential, this.parallel(SweepRunner.configure(32, 0.5, 0, 20, 0, 0, 0, "heap", "bus", 11), 4, 4));
+    assertEquals(sequential, this.parallel(SweepRunner.configure(32, 0.5, 0, 20, 0, 0, 0, "heap", "bus", 11), 4, 4096));
+  }
+  
+  /**
+   @return A simulator of 64 byte frames on a faster medium, each node offering 3Mbps
+  */
+  private Simulator faster(int mbps) {
+    return SweepRunner.configure(12, 3, 64, 30, mbps * 1000000, 0, 0, "heap", "bus", 9);
+  }
+  
+  /**
+   Above 10Mbps the jam can stop before its signal has crossed the bus, and at 1000Mbps short frames are extended
+  */
+  @Test
+  public void workersMatchSequentialRunAtHigherSpeeds() {
+    for (int mbps : new int[] { 100, 1000 }) {
+      assertEquals(Simulations.run(this.faster(mbps)), this.parallel(this.faster(mbps), 3, 0), mbps + "Mbps");
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package ethernet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ A replayed workload has to be reported by the frames it actually sent: every pair a node sent to, with the bytes of
+ each frame rather than the synthetic payload size
+*/
+public class WorkloadReplayTest {
+  @TempDir
+  File directory;
+  
+  /**
+   Write a workload of frames a millisecond apart, far enough that none of them collide
+   
+   @param frames Capture host that sent it, host it was sent to and frame size, for each frame
+  */
+  private File workload(int[][] frames) throws IOException {
+    File file = new File(this.directory, "capture.wkl");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    
+    try {
+      out.writeLong(WorkloadReplay.MAGIC);
+      out.writeInt(WorkloadReplay.VERSION);
+      
+      for (int i = 0; i < frames.length; i++) {
+        out.writeLong(i * 1000000L);
+        out.writeInt(frames[i][0]);
+        out.writeInt(frames[i][1]);
+        out.writeInt(frames[i][2]);
+      }
+    } finally {
+      out.close();
+    }
+    
+    return file;
+  }
+  
+  @Test
+  public void reportsEveryPairByItsBytes() throws IOException {
+    /**
+     Hosts 10, 20 and 30 are given the nodes in that order, 10 sends to both of the others and its 40 byte frame is
+     padded out to 64
+    */
+    File file = this.workload(new int[][] {
+      { 10, 20, 100 }, { 10, 30, 1000 }, { 20, 10, 40 }, { 10, 20, 100 }, { 10, 30, 1000 }, { 10, 20, 100 }, { 30, 30, 500 }
+    });
+    
+    Simulator sim = SweepRunner.configure(3, 1, 0, 0, 0, 0, 0, "heap", "bus", 3);
+    sim.WORKLOAD_FILE = file.getPath();
+    
+    String report = Simulations.run(sim);
+    
+    List<Node> nodes = sim.getStations();
+    StatisticsAccumulator accumulator = sim.getAccumulator();
+    
+    assertEquals(6, sim.getFramesDelivered());
+    assertEquals(3, accumulator.framesDelivered(nodes.get(0), nodes.get(1)));
+    assertEquals(300, accumulator.bytesDelivered(nodes.get(0), nodes.get(1)));
+    assertEquals(2, accumulator.framesDelivered(nodes.get(0), nodes.get(2)));
+    assertEquals(2000, accumulator.bytesDelivered(nodes.get(0), nodes.get(2)));
+    assertEquals(1, accumulator.framesDelivered(nodes.get(1), nodes.get(0)));
+    assertEquals(64, accumulator.bytesDelivered(nodes.get(1), nodes.get(0)));
+    assertEquals(0, accumulator.framesDelivered(nodes.get(2), nodes.get(2)));
+    
+    assertTrue(report.contains(nodes.get(0).getMacAddress() + " -> " + nodes.get(1) + ": "), report);
+    assertTrue(report.contains(nodes.get(0).getMacAddress() + " -> " + nodes.get(2) + ": "), report);
+    assertTrue(report.contains(nodes.get(1).getMacAddress() + " -> " + nodes.get(0) + ": "), report);
+    assertFalse(report.contains(nodes.get(2).getMacAddress() + " -> "), report);
+  }
+}